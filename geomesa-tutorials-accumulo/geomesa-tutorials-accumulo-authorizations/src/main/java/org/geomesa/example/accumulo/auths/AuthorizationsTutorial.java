@@ -30,6 +30,7 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public class AuthorizationsTutorial extends GeoMesaQuickStart {
 
@@ -73,9 +74,12 @@ public class AuthorizationsTutorial extends GeoMesaQuickStart {
     }
 
     @Override
-    public void initializeFromOptions(CommandLine command) {
+    public void initializeFromOptions(CommandLine command) throws ParseException {
         super.initializeFromOptions(command);
         this.visibilities = command.getOptionValue("visibilities");
+        // the auths option is added in createOptions, so make sure it is passed through to the data store
+        Param authorizations = AccumuloDataStoreParams.AuthsParam();
+        params.put(authorizations.getName(), command.getOptionValue(authorizations.getName()));
     }
 
     @Override
@@ -93,6 +97,12 @@ public class AuthorizationsTutorial extends GeoMesaQuickStart {
         return super.createDataStore(params);
     }
 
+    @Override
+    public boolean supportsCompactFeatures() {
+        // the visibilities are set on the test features, which compact features would not keep
+        return false;
+    }
+
     @Override
     public List<SimpleFeature> getTestFeatures(TutorialData data) {
         List<SimpleFeature> features = super.getTestFeatures(data);
@@ -102,6 +112,12 @@ public class AuthorizationsTutorial extends GeoMesaQuickStart {
         return features;
     }
 
+    @Override
+    public Stream<SimpleFeature> streamTestFeatures(TutorialData data) {
+        return super.streamTestFeatures(data)
+                    .peek(feature -> feature.getUserData().put(SecurityUtils.FEATURE_VISIBILITY, visibilities));
+    }
+
     @Override
     public List<Query> getTestQueries(TutorialData data) {
         // we'll use the same filter for each query
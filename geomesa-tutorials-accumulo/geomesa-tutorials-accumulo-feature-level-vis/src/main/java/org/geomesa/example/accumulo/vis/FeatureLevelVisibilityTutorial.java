@@ -21,6 +21,8 @@ import org.geotools.api.feature.simple.SimpleFeatureType;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 public class FeatureLevelVisibilityTutorial extends GeoMesaQuickStart {
 
@@ -54,6 +56,12 @@ public class FeatureLevelVisibilityTutorial extends GeoMesaQuickStart {
         super(args, new AccumuloDataStoreFactory().getParametersInfo(), data);
     }
 
+    @Override
+    public boolean supportsCompactFeatures() {
+        // the visibilities are set on the test features, which compact features would not keep
+        return false;
+    }
+
     @Override
     public List<SimpleFeature> getTestFeatures(TutorialData data) {
         List<SimpleFeature> features = super.getTestFeatures(data);
@@ -75,6 +83,16 @@ public class FeatureLevelVisibilityTutorial extends GeoMesaQuickStart {
         return features;
     }
 
+    @Override
+    public Stream<SimpleFeature> streamTestFeatures(TutorialData data) {
+        AtomicInteger i = new AtomicInteger(0);
+        return super.streamTestFeatures(data).peek(feature -> {
+            String visibilities = i.getAndIncrement() % 2 == 0 ? "admin" : "user|admin";
+            SecurityUtils.setFeatureVisibility(feature, visibilities);
+            feature.setAttribute("visibility", visibilities);
+        });
+    }
+
     @Override
     public List<Query> getTestQueries(TutorialData data) {
         // we use geoserver for visualization
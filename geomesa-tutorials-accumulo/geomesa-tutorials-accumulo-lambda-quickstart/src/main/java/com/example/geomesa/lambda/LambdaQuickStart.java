@@ -52,6 +52,12 @@ public class LambdaQuickStart extends GeoMesaQuickStart {
         super.createSchema(datastore, sft);
     }
 
+    @Override
+    public boolean usesDefaultWrites() {
+        // features are written through the list variant of writeFeatures
+        return false;
+    }
+
     @Override
     public void writeFeatures(DataStore datastore, SimpleFeatureType sft, List<SimpleFeature> features)
           throws IOException {
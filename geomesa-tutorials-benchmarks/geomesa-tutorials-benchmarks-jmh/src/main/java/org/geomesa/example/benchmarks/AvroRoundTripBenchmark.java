@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks;
+
+import org.geomesa.example.data.GDELTData;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.locationtech.geomesa.features.avro.io.AvroDataFileReader;
+import org.locationtech.geomesa.features.avro.io.AvroDataFileWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Measures writing and reading the bundled GDELT data through the GeoMesa Avro data file format, as used by
+ * the Avro tutorials and the feature snapshot cache. Files are written to memory, so only serialization
+ * (and optionally compression) is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvroRoundTripBenchmark {
+
+    @Param({"0", "6"})
+    public int compression;
+
+    private SimpleFeatureType sft;
+    private List<SimpleFeature> features;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() throws IOException {
+        GDELTData data = new GDELTData();
+        sft = data.getSimpleFeatureType();
+        features = data.getTestData();
+        bytes = write(compression == 0 ? Deflater.NO_COMPRESSION : compression);
+    }
+
+    private byte[] write(int level) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes == null ? 1024 * 1024 : bytes.length);
+        try (AvroDataFileWriter writer = new AvroDataFileWriter(out, sft, level)) {
+            for (SimpleFeature feature : features) {
+                writer.append(feature);
+            }
+            writer.flush();
+        }
+        return out.toByteArray();
+    }
+
+    private void read(byte[] bytes, Blackhole blackhole) throws IOException {
+        AvroDataFileReader reader = new AvroDataFileReader(new ByteArrayInputStream(bytes));
+        try (Closeable ignored = reader) {
+            while (reader.hasNext()) {
+                blackhole.consume(reader.next());
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return write(compression == 0 ? Deflater.NO_COMPRESSION : compression);
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) throws IOException {
+        read(bytes, blackhole);
+    }
+
+    @Benchmark
+    public void roundTrip(Blackhole blackhole) throws IOException {
+        read(write(compression == 0 ? Deflater.NO_COMPRESSION : compression), blackhole);
+    }
+}
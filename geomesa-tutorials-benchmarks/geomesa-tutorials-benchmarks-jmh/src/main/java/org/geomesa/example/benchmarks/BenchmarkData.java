@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Shared helpers for loading benchmark inputs
+ */
+public class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    /**
+     * Reads a classpath resource into a string
+     *
+     * @param name resource name
+     * @return resource contents
+     * @throws IOException if the resource can't be read
+     */
+    public static String readResource(String name) throws IOException {
+        try (InputStream in = BenchmarkData.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Couldn't load resource " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks;
+
+import org.geomesa.example.data.CompactFeatureList;
+import org.geomesa.example.data.GDELTData;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of replaying the bundled GDELT data from a CompactFeatureList, which creates each
+ * feature on access, compared to a list of regular features. See FeatureFootprint for the memory savings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompactFeatureBenchmark {
+
+    private GDELTData data;
+    private List<SimpleFeature> features;
+    private CompactFeatureList compact;
+
+    @Setup
+    public void setup() {
+        data = new GDELTData();
+        features = data.getTestData();
+        compact = CompactFeatureList.copyOf(data.getSimpleFeatureType(), features);
+    }
+
+    @Benchmark
+    public void iterateFeatures(Blackhole blackhole) {
+        for (SimpleFeature feature : features) {
+            blackhole.consume(feature.getDefaultGeometry());
+        }
+    }
+
+    @Benchmark
+    public void iterateCompact(Blackhole blackhole) {
+        for (SimpleFeature feature : compact) {
+            blackhole.consume(feature.getDefaultGeometry());
+        }
+    }
+
+    @Benchmark
+    public CompactFeatureList copy() {
+        return CompactFeatureList.copyOf(data.getSimpleFeatureType(), features);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks;
+
+import org.geomesa.example.data.GDELTData;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building features through a SimpleFeatureBuilder, without any CSV parsing. The attribute values
+ * are taken from the bundled GDELT data up front, so only the builder is measured. Setting attributes by
+ * index (as done in GDELTData) is compared to setting them by name, and to passing all the values at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeatureBuildingBenchmark {
+
+    private SimpleFeatureType sft;
+    private String[] names;
+    private Object[][] values;
+    private String[] ids;
+    private SimpleFeatureBuilder builder;
+    private int i = 0;
+
+    @Setup
+    public void setup() {
+        GDELTData data = new GDELTData();
+        sft = data.getSimpleFeatureType();
+        List<SimpleFeature> features = data.getTestData();
+        names = new String[sft.getAttributeCount()];
+        for (int a = 0; a < names.length; a++) {
+            names[a] = sft.getDescriptor(a).getLocalName();
+        }
+        values = new Object[features.size()][];
+        ids = new String[features.size()];
+        for (int f = 0; f < features.size(); f++) {
+            values[f] = features.get(f).getAttributes().toArray();
+            ids[f] = features.get(f).getID();
+        }
+        builder = new SimpleFeatureBuilder(sft);
+    }
+
+    private int next() {
+        if (++i == values.length) {
+            i = 0;
+        }
+        return i;
+    }
+
+    @Benchmark
+    public SimpleFeature setByIndex() {
+        int f = next();
+        Object[] record = values[f];
+        for (int a = 0; a < record.length; a++) {
+            builder.set(a, record[a]);
+        }
+        return builder.buildFeature(ids[f]);
+    }
+
+    @Benchmark
+    public SimpleFeature setByName() {
+        int f = next();
+        Object[] record = values[f];
+        for (int a = 0; a < record.length; a++) {
+            builder.set(names[a], record[a]);
+        }
+        return builder.buildFeature(ids[f]);
+    }
+
+    @Benchmark
+    public SimpleFeature addAll() {
+        int f = next();
+        builder.addAll(values[f]);
+        return builder.buildFeature(ids[f]);
+    }
+
+    @Benchmark
+    public void newBuilder(Blackhole blackhole) {
+        // cost of creating a builder per feature, instead of re-using one
+        int f = next();
+        SimpleFeatureBuilder fresh = new SimpleFeatureBuilder(sft);
+        fresh.addAll(values[f]);
+        blackhole.consume(fresh.buildFeature(ids[f]));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks;
+
+import org.geomesa.example.data.GDELTData;
+import org.geotools.api.feature.simple.SimpleFeature;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Measures the retained heap of the GDELT data when held as regular features, compared to a CompactFeatureList.
+ * This isn't a JMH benchmark, as JMH measures time and allocation rates rather than live memory. Run with:
+ *
+ * <pre>
+ *   java -cp geomesa-tutorials-benchmarks-jmh-*.jar org.geomesa.example.benchmarks.FeatureFootprint [gdelt file]
+ * </pre>
+ *
+ * If no file is given, the bundled data is used - pass a full GDELT export for more meaningful numbers.
+ */
+public class FeatureFootprint {
+
+    private FeatureFootprint() {}
+
+    public static void main(String[] args) throws InterruptedException {
+        GDELTData data = new GDELTData();
+        if (args.length > 0) {
+            data.setInputFile(Paths.get(args[0]), false);
+        }
+        // load once up front so that class loading and static caches aren't counted
+        data.getTestData();
+        data.setCompact(true);
+        data.getTestData();
+
+        data.setCompact(false);
+        measure("features", data);
+        data.setCompact(true);
+        measure("compact", data);
+    }
+
+    private static void measure(String name, GDELTData data) throws InterruptedException {
+        // note: changing the compact flag clears the cached list, so only the list being measured is reachable
+        long before = usedHeap();
+        List<SimpleFeature> features = data.getTestData();
+        long after = usedHeap();
+        long bytes = after - before;
+        System.out.println(String.format("%-10s %,d features, %,d bytes retained, %.1f bytes/feature",
+                                         name, features.size(), bytes, bytes / (double) Math.max(1, features.size())));
+        // keep the list reachable until after the measurement
+        if (features.isEmpty()) {
+            System.out.println("No features loaded");
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        // gc isn't guaranteed to run, so request it a few times
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
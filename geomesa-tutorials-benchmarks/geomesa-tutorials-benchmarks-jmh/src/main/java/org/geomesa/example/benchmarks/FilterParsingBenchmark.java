@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks;
+
+import org.geomesa.example.data.TutorialData;
+import org.geotools.api.filter.Filter;
+import org.geotools.filter.text.cql2.CQLException;
+import org.geotools.filter.text.ecql.ECQL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building query filters through TutorialData.createFilter, which assembles a CQL string and parses
+ * it through ECQL, compared to parsing the same string directly and to encoding the parsed filter back to text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterParsingBenchmark {
+
+    @Param({"none", "EventCode = '051'"})
+    public String attributes;
+
+    private String attributesQuery;
+    private String cql;
+    private Filter filter;
+
+    @Setup
+    public void setup() throws CQLException {
+        attributesQuery = "none".equals(attributes) ? null : attributes;
+        filter = createFilter();
+        cql = ECQL.toCQL(filter);
+    }
+
+    @Benchmark
+    public Filter createFilter() throws CQLException {
+        return TutorialData.createFilter("geom", -120, 30, -75, 55, "dtg", "2017-12-31T00:00:00.000Z",
+                                         "2018-01-02T00:00:00.000Z", attributesQuery);
+    }
+
+    @Benchmark
+    public Filter parse() throws CQLException {
+        return ECQL.toFilter(cql);
+    }
+
+    @Benchmark
+    public String encode() {
+        return ECQL.toCQL(filter);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks;
+
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.geomesa.example.data.GDELTData;
+import org.geomesa.example.data.GDELTDecoder;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Compares parsing the bundled GDELT export with commons-csv and a SimpleFeatureBuilder (through
+ * GDELTData.parse) against the GDELTDecoder, which GDELTData uses to load the data. The file is read
+ * into memory up front, so only parsing and feature creation are measured. Run with '-prof gc' to
+ * compare allocation rates.
+ *
+ * Setup verifies that both methods produce the same features, so that like is compared with like.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GDELTParsingBenchmark {
+
+    private GDELTData data;
+    private String text;
+
+    @Setup
+    public void setup() throws IOException {
+        data = new GDELTData();
+        text = BenchmarkData.readResource(data.getResourceName());
+
+        List<SimpleFeature> expected = new ArrayList<>();
+        List<SimpleFeature> actual = new ArrayList<>();
+        parseCsv(expected::add);
+        decode(actual::add);
+        if (expected.size() != actual.size()) {
+            throw new IllegalStateException("Decoder produced " + actual.size() + " features, but commons-csv " +
+                                            "produced " + expected.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            SimpleFeature e = expected.get(i);
+            SimpleFeature a = actual.get(i);
+            if (!e.getID().equals(a.getID()) || !e.getAttributes().equals(a.getAttributes())) {
+                throw new IllegalStateException("Decoder produced a different feature at index " + i + ":\n  " +
+                                                a.getID() + " " + a.getAttributes() + "\nexpected:\n  " +
+                                                e.getID() + " " + e.getAttributes());
+            }
+        }
+    }
+
+    @Benchmark
+    public void commonsCsv(Blackhole blackhole) throws IOException {
+        parseCsv(blackhole::consume);
+    }
+
+    @Benchmark
+    public void decoder(Blackhole blackhole) {
+        decode(blackhole::consume);
+    }
+
+    private void parseCsv(Consumer<SimpleFeature> consumer) throws IOException {
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(data.getSimpleFeatureType());
+        try (CSVParser parser = CSVParser.parse(text, data.getFormat())) {
+            for (CSVRecord record : parser) {
+                SimpleFeature feature = data.parse(record, builder);
+                if (feature != null) {
+                    consumer.accept(feature);
+                }
+            }
+        }
+    }
+
+    private void decode(Consumer<SimpleFeature> consumer) {
+        GDELTDecoder decoder = new GDELTDecoder(data.getSimpleFeatureType());
+        try (Stream<SimpleFeature> features = decoder.decode(new BufferedReader(new StringReader(text)))) {
+            features.forEach(consumer);
+        }
+    }
+}
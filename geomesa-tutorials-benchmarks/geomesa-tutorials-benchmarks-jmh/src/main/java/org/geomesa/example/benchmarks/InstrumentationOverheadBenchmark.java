@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.Recording;
+import org.geomesa.example.data.GDELTData;
+import org.geomesa.example.quickstart.QuickStartMetrics;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-feature cost of the instrumentation used in the quickstart write loop, on top of a
+ * stand-in for the work done per feature (copying the attributes, as GeoMesaQuickStart.writeFeature does).
+ * Metrics are published to a Prometheus registry, and JFR events are measured both with and without
+ * an active flight recording.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentationOverheadBenchmark {
+
+    @Param({"false", "true"})
+    public boolean recording;
+
+    private List<SimpleFeature> features;
+    private int i = 0;
+
+    private Path file;
+    private QuickStartMetrics metrics;
+    private Timer timer;
+    private Counter counter;
+    private Recording jfr;
+
+    @Setup
+    public void setup() throws IOException {
+        features = new GDELTData().getTestData();
+        file = Files.createTempFile("metrics", ".prom");
+        metrics = new QuickStartMetrics(file, -1);
+        timer = metrics.timer("write.feature", "type", "benchmark");
+        counter = metrics.counter("features.written", "type", "benchmark");
+        if (recording) {
+            jfr = new Recording();
+            jfr.enable(QuickStartMetrics.WriteEvent.class);
+            jfr.start();
+        }
+    }
+
+    @TearDown
+    public void teardown() throws IOException {
+        if (jfr != null) {
+            jfr.close();
+        }
+        metrics.close();
+        Files.deleteIfExists(file);
+    }
+
+    private Object[] work() {
+        SimpleFeature feature = features.get(i++ % features.size());
+        return feature.getAttributes().toArray();
+    }
+
+    @Benchmark
+    public Object baseline() {
+        return work();
+    }
+
+    @Benchmark
+    public Object counter() {
+        Object result = work();
+        counter.increment();
+        return result;
+    }
+
+    @Benchmark
+    public Object timer() {
+        long start = System.nanoTime();
+        Object result = work();
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    @Benchmark
+    public Object timerAndCounter() {
+        long start = System.nanoTime();
+        Object result = work();
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        counter.increment();
+        return result;
+    }
+
+    @Benchmark
+    public Object jfrEvent() {
+        QuickStartMetrics.WriteEvent event = new QuickStartMetrics.WriteEvent();
+        event.typeName = "benchmark";
+        event.begin();
+        Object result = work();
+        event.features = 1;
+        event.commit();
+        return result;
+    }
+}
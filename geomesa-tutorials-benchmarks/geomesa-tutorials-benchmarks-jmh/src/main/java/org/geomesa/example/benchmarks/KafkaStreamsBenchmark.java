@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks;
+
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.geomesa.example.data.GDELTData;
+import org.geomesa.example.kafka.GeoPartitioner;
+import org.geomesa.example.kafka.Proximity;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.locationtech.geomesa.curve.Z2SFC;
+import org.locationtech.geomesa.kafka.streams.GeoMesaMessage;
+import org.locationtech.geomesa.utils.geohash.GeohashUtils;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-record functions of the Kafka Streams quickstart - keying messages by spatial partition
+ * through GeoPartitioner, and measuring the distance between joined messages through Proximity. Messages
+ * are created from the bundled GDELT data up front.
+ *
+ * The 'formatted' benchmarks reproduce the previous partitioner, which copied the attributes, always built a
+ * date-line safe centroid and formatted the Z2 bin as a zero-padded string key, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KafkaStreamsBenchmark {
+
+    private GeoMesaMessage[] messages;
+    private Proximity[] proximities;
+    private GeoPartitioner partitioner;
+    private Z2SFC z2;
+    private int geomIndex;
+    private Long[] keys;
+    private String[] formattedKeys;
+    private final LongSerializer longSerializer = new LongSerializer();
+    private final StringSerializer stringSerializer = new StringSerializer();
+    private int i = 0;
+
+    @Setup
+    public void setup() {
+        GDELTData data = new GDELTData();
+        SimpleFeatureType sft = data.getSimpleFeatureType();
+        geomIndex = sft.indexOf(sft.getGeometryDescriptor().getLocalName());
+        List<SimpleFeature> features = data.getTestData();
+        messages = new GeoMesaMessage[features.size()];
+        for (int f = 0; f < features.size(); f++) {
+            messages[f] = GeoMesaMessage.upsert(new ArrayList<>(features.get(f).getAttributes()));
+        }
+        proximities = new Proximity[messages.length];
+        for (int m = 0; m < messages.length; m++) {
+            proximities[m] = new Proximity(messages[m], messages[(m + 1) % messages.length], geomIndex);
+        }
+        // same settings as the quickstart
+        partitioner = new GeoPartitioner((short) 2, geomIndex);
+        z2 = new Z2SFC(1);
+        keys = new Long[messages.length];
+        formattedKeys = new String[messages.length];
+        for (int m = 0; m < messages.length; m++) {
+            keys[m] = partitioner.apply(null, messages[m]);
+            formattedKeys[m] = formatted(messages[m]);
+        }
+    }
+
+    private String formatted(GeoMesaMessage message) {
+        List<Object> attributes = message.asJava();
+        Geometry geom = (Geometry) attributes.get(geomIndex);
+        Point safeGeom = GeohashUtils.getInternationalDateLineSafeGeometry(geom).get().getCentroid();
+        Long index = z2.index(safeGeom.getX(), safeGeom.getY(), false);
+        return String.format("%0" + 2 + "d", index);
+    }
+
+    private int next() {
+        if (++i == messages.length) {
+            i = 0;
+        }
+        return i;
+    }
+
+    @Benchmark
+    public Long partition() {
+        return partitioner.apply(null, messages[next()]);
+    }
+
+    @Benchmark
+    public String partitionFormatted() {
+        return formatted(messages[next()]);
+    }
+
+    @Benchmark
+    public byte[] serializeKey() {
+        return longSerializer.serialize("benchmark", keys[next()]);
+    }
+
+    @Benchmark
+    public byte[] serializeFormattedKey() {
+        return stringSerializer.serialize("benchmark", formattedKeys[next()]);
+    }
+
+    @Benchmark
+    public Double distance() {
+        return proximities[next()].getDistance();
+    }
+}
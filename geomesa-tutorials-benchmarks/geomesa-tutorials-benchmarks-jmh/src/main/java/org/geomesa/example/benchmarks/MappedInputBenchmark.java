@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks;
+
+import org.geomesa.example.data.GDELTData;
+import org.geomesa.example.data.MappedFileReader;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares reading an external GDELT file through a buffered reader against reading it through a
+ * memory mapping. The file is built by repeating the bundled GDELT export, and is read both with
+ * full feature parsing and with a plain character scan, to separate I/O cost from parsing cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappedInputBenchmark {
+
+    @Param({"20"})
+    public int copies;
+
+    private Path file;
+    private GDELTData buffered;
+    private GDELTData mapped;
+
+    @Setup
+    public void setup() throws IOException {
+        buffered = new GDELTData();
+        mapped = new GDELTData();
+        String text = BenchmarkData.readResource(buffered.getResourceName());
+        file = Files.createTempFile("gdelt", ".csv");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < copies; i++) {
+                writer.write(text);
+            }
+        }
+        buffered.setInputFile(file, false);
+        mapped.setInputFile(file, true);
+    }
+
+    @TearDown
+    public void teardown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void parseBuffered(Blackhole blackhole) {
+        parse(buffered, blackhole);
+    }
+
+    @Benchmark
+    public void parseMapped(Blackhole blackhole) {
+        parse(mapped, blackhole);
+    }
+
+    @Benchmark
+    public long scanBuffered() throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return scan(reader);
+        }
+    }
+
+    @Benchmark
+    public long scanMapped() throws IOException {
+        try (Reader reader = new BufferedReader(new MappedFileReader(file))) {
+            return scan(reader);
+        }
+    }
+
+    private static void parse(GDELTData data, Blackhole blackhole) {
+        try (Stream<SimpleFeature> features = data.streamTestData()) {
+            features.forEach(blackhole::consume);
+        }
+    }
+
+    /**
+     * Counts line breaks, which touches every character without any parsing
+     */
+    private static long scan(Reader reader) throws IOException {
+        char[] buffer = new char[8192];
+        long lines = 0;
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+        return lines;
+    }
+}
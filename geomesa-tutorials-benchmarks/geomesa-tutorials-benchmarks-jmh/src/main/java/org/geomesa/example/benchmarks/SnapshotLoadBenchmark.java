@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks;
+
+import org.geomesa.example.data.CsvTutorialData;
+import org.geomesa.example.data.CvilleRICData;
+import org.geomesa.example.data.FeatureSnapshotCache;
+import org.geomesa.example.data.GDELTData;
+import org.geomesa.example.data.TDriveData;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares loading the bundled tutorial data by parsing the CSV resources against loading it from
+ * a binary snapshot. The single-shot mode approximates the cost paid at quickstart startup, with
+ * each iteration run in a cold state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 10)
+@Fork(5)
+public class SnapshotLoadBenchmark {
+
+    @Param({"gdelt", "tdrive", "cville"})
+    public String dataset;
+
+    private CsvTutorialData data;
+    private Path dir;
+    private Path snapshot;
+
+    @Setup
+    public void setup() throws IOException {
+        switch (dataset) {
+            case "gdelt":
+                data = new GDELTData();
+                break;
+            case "tdrive":
+                data = new TDriveData();
+                break;
+            case "cville":
+                data = new CvilleRICData();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown data set: " + dataset);
+        }
+        dir = Files.createTempDirectory("snapshots");
+        FeatureSnapshotCache cache = new FeatureSnapshotCache(dir);
+        snapshot = cache.write(data, data.getTestData());
+    }
+
+    @TearDown
+    public void teardown() throws IOException {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        try (Stream<SimpleFeature> features = data.parseTestData()) {
+            features.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void snapshot(Blackhole blackhole) throws IOException {
+        try (Stream<SimpleFeature> features = FeatureSnapshotCache.read(snapshot)) {
+            features.forEach(blackhole::consume);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks.kafka;
+
+import com.sun.management.OperatingSystemMXBean;
+import org.HdrHistogram.Histogram;
+import org.geomesa.example.data.SyntheticData;
+import org.geomesa.example.data.TDriveData;
+import org.geomesa.example.quickstart.QuickStartReport;
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.DataStoreFinder;
+import org.geotools.api.data.FeatureEvent;
+import org.geotools.api.data.FeatureListener;
+import org.geotools.api.data.FeatureWriter;
+import org.geotools.api.data.SimpleFeatureSource;
+import org.geotools.api.data.Transaction;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.geotools.util.factory.Hints;
+import org.locationtech.geomesa.utils.interop.SimpleFeatureTypes;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how the Kafka live feature cache scales with the number of consumers, the number of topic
+ * partitions and the number of live entities.
+ *
+ * For each combination, synthetic tracks are written to a new schema as fast as the producer allows, while
+ * a consumer with the given number of Kafka consumers keeps its cache up to date. Meanwhile, a single thread
+ * repeatedly reads the whole cache through getFeatures(). The reported values are:
+ *
+ * <ul>
+ *     <li>ingest-to-cache throughput - messages per second, from the first write until the last message
+ *     reached the consumer</li>
+ *     <li>CPU per message - process CPU time over the same period, excluding the query thread. As the producer
+ *     and broker run in the same JVM, this is only meaningful relative to the other combinations</li>
+ *     <li>query latency - percentiles for reading the whole cache, while it is being updated</li>
+ * </ul>
+ */
+public class ConsumerScaling {
+
+    // highest latency that can be recorded, in microseconds
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String brokers;
+    private final int[] partitions;
+    private final int[] consumers;
+    private final int[] entities;
+    private final int messages;
+    private final int drainSeconds;
+    private final int querySeconds;
+
+    /**
+     * @param brokers kafka brokers
+     * @param partitions topic partition counts to measure
+     * @param consumers consumer counts to measure
+     * @param entities numbers of live entities to measure
+     * @param messages number of messages to write for each combination
+     * @param drainSeconds max time to wait for the consumer to catch up after writing
+     * @param querySeconds min time to query the cache for each combination
+     */
+    public ConsumerScaling(String brokers,
+                           int[] partitions,
+                           int[] consumers,
+                           int[] entities,
+                           int messages,
+                           int drainSeconds,
+                           int querySeconds) {
+        this.brokers = brokers;
+        this.partitions = partitions;
+        this.consumers = consumers;
+        this.entities = entities;
+        this.messages = messages;
+        this.drainSeconds = drainSeconds;
+        this.querySeconds = querySeconds;
+    }
+
+    /**
+     * Runs each combination in turn, and prints the results
+     *
+     * @param report report to record the results in, with keys 'scaling.count' and 'scaling.N.*'
+     * @throws IOException on error
+     * @throws InterruptedException if interrupted
+     */
+    public void run(QuickStartReport report) throws IOException, InterruptedException {
+        TDriveData template = new TDriveData();
+        List<String> results = new ArrayList<>();
+        int n = 0;
+        for (int e : entities) {
+            // the same tracks are replayed for each partition and consumer count
+            List<SimpleFeature> features =
+                  new SyntheticData(template, SyntheticData.Mode.TRACKS, messages, 0L, 0.5d, 1, e).getTestData();
+            for (int p : partitions) {
+                for (int c : consumers) {
+                    results.add(step(report, n++, template.getSimpleFeatureType(), features, p, c, e));
+                }
+            }
+        }
+        report.put("scaling.count", n);
+
+        System.out.println();
+        System.out.println("Live cache scaling:");
+        System.out.println(String.format("%10s %10s %10s %10s %10s %12s %12s %10s %10s %10s %10s",
+                                         "partitions", "consumers", "entities", "sent", "received", "msgs/s",
+                                         "cpu us/msg", "cached", "query p50", "query p99", "query max"));
+        results.forEach(System.out::println);
+        System.out.println();
+    }
+
+    /**
+     * Measures a single combination
+     *
+     * @return formatted result row
+     */
+    private String step(QuickStartReport report,
+                        int n,
+                        SimpleFeatureType template,
+                        List<SimpleFeature> features,
+                        int p,
+                        int c,
+                        int e) throws IOException, InterruptedException {
+        System.out.println("Measuring " + p + " partitions, " + c + " consumers, " + e + " entities");
+
+        // use a new schema each time, as the partitions are set when the topic is created
+        String typeName = "scaling-p" + p + "-c" + c + "-e" + e;
+        SimpleFeatureType sft = SimpleFeatureTypes.createType(typeName, DataUtilities.encodeType(template));
+        sft.getUserData().put(SimpleFeatureTypes.DEFAULT_DATE_KEY, "dtg");
+
+        Map<String, String> params = new HashMap<>();
+        params.put("kafka.brokers", brokers);
+        params.put("kafka.topic.partitions", Integer.toString(p));
+        params.put("kafka.consumer.count", "0");
+        DataStore producer = createDataStore(params);
+        DataStore consumer = null;
+        SimpleFeatureSource source = null;
+        FeatureListener listener = null;
+        try {
+            producer.createSchema(sft);
+
+            params.put("kafka.consumer.count", Integer.toString(c));
+            consumer = createDataStore(params);
+            AtomicLong received = new AtomicLong(0);
+            AtomicLong lastReceived = new AtomicLong(0);
+            listener = event -> {
+                if (event.getType() == FeatureEvent.Type.CHANGED) {
+                    lastReceived.set(System.nanoTime());
+                    received.incrementAndGet();
+                }
+            };
+            source = consumer.getFeatureSource(typeName);
+            source.addFeatureListener(listener);
+
+            LiveCacheQuery query = new LiveCacheQuery(source);
+            Thread queryThread = new Thread(query, "live-cache-query");
+            queryThread.setDaemon(true);
+            queryThread.start();
+
+            long cpuStart = processCpuNanos();
+            long queryCpuStart = query.cpu.get();
+            long start = System.nanoTime();
+            try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                       producer.getFeatureWriterAppend(typeName, Transaction.AUTO_COMMIT)) {
+                for (SimpleFeature feature : features) {
+                    SimpleFeature toWrite = writer.next();
+                    toWrite.setAttributes(feature.getAttributes());
+                    ((FeatureIdImpl) toWrite.getIdentifier()).setID(feature.getID());
+                    toWrite.getUserData().put(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+                    writer.write();
+                }
+            }
+
+            // wait for the consumer to catch up
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds);
+            while (received.get() < features.size() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            long count = received.get();
+            long cpu = processCpuNanos() - cpuStart - (query.cpu.get() - queryCpuStart);
+            long elapsed = count == 0 ? 0L : lastReceived.get() - start;
+
+            // keep querying for the minimum time, if the writes were quicker
+            long queryEnd = start + TimeUnit.SECONDS.toNanos(querySeconds);
+            while (System.nanoTime() < queryEnd) {
+                Thread.sleep(10);
+            }
+            query.done.set(true);
+            queryThread.join();
+
+            double rate = elapsed == 0 ? 0d : count * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+            double cpuPerMessage = count == 0 || cpu < 0 ? -1d : TimeUnit.NANOSECONDS.toMicros(cpu) / (double) count;
+            Histogram latencies = query.latencies;
+            String prefix = "scaling." + n + ".";
+            report.put(prefix + "partitions", p);
+            report.put(prefix + "consumers", c);
+            report.put(prefix + "entities", e);
+            report.put(prefix + "sent", features.size());
+            report.put(prefix + "received", count);
+            report.put(prefix + "rate", rate);
+            report.put(prefix + "cpu.us", cpuPerMessage);
+            report.put(prefix + "cached", query.cached);
+            report.put(prefix + "query.count", latencies.getTotalCount());
+            report.put(prefix + "query.p50.ms", millis(latencies.getValueAtPercentile(50)));
+            report.put(prefix + "query.p99.ms", millis(latencies.getValueAtPercentile(99)));
+            report.put(prefix + "query.max.ms", millis(latencies.getMaxValue()));
+            return String.format("%10d %10d %10d %10d %10d %12.1f %12.2f %10d %10.2f %10.2f %10.2f", p, c, e,
+                                 features.size(), count, rate, cpuPerMessage, query.cached,
+                                 millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+                                 millis(latencies.getMaxValue()));
+        } finally {
+            if (source != null && listener != null) {
+                source.removeFeatureListener(listener);
+            }
+            if (consumer != null) {
+                consumer.dispose();
+            }
+            try {
+                producer.removeSchema(typeName);
+            } catch (IOException ex) {
+                System.err.println("Exception removing schema: " + ex.toString());
+            }
+            producer.dispose();
+        }
+    }
+
+    private static long processCpuNanos() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof OperatingSystemMXBean) {
+            return ((OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1L;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000d;
+    }
+
+    private static DataStore createDataStore(Map<String, String> params) throws IOException {
+        DataStore datastore = DataStoreFinder.getDataStore(params);
+        if (datastore == null) {
+            throw new RuntimeException("Could not create data store with provided parameters");
+        }
+        return datastore;
+    }
+
+    /**
+     * Reads the whole live cache in a loop, recording the latency of each read. The CPU time used is tracked
+     * so that it can be excluded from the ingest cost.
+     */
+    private static class LiveCacheQuery implements Runnable {
+
+        private final SimpleFeatureSource source;
+        private final Histogram latencies = new Histogram(MAX_LATENCY_MICROS, 3);
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private final AtomicLong cpu = new AtomicLong(0);
+        private volatile long cached = 0;
+
+        LiveCacheQuery(SimpleFeatureSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public void run() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            while (!done.get()) {
+                long start = System.nanoTime();
+                long count = 0;
+                try (SimpleFeatureIterator iterator = source.getFeatures().features()) {
+                    while (iterator.hasNext()) {
+                        iterator.next();
+                        count++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Exception querying the live cache: " + e.toString());
+                    return;
+                }
+                long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                latencies.recordValue(Math.min(MAX_LATENCY_MICROS, latency));
+                cached = count;
+                cpu.set(threads.getCurrentThreadCpuTime() - cpuStart);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks.kafka;
+
+import kafka.server.KafkaConfig;
+import kafka.server.KafkaRaftServer;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.utils.Time;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Single-node Kafka broker running in KRaft mode inside the current JVM, i.e. without Zookeeper or any other
+ * external services. The node acts as both broker and controller, and listens on free local ports.
+ *
+ * Storage is formatted by writing the 'meta.properties' file directly, which is the part of
+ * 'kafka-storage.sh format' that a single combined node requires.
+ */
+public class EmbeddedKafka implements Closeable {
+
+    private static final int NODE_ID = 1;
+
+    private final Path dir;
+    private final boolean deleteOnClose;
+    private final Properties config = new Properties();
+    private final String brokers;
+
+    private KafkaRaftServer server = null;
+
+    /**
+     * @param dir directory for the broker logs
+     * @param deleteOnClose delete the directory when the broker is closed
+     * @param overrides additional broker configuration, which takes precedence over the defaults
+     * @throws IOException if the free ports can't be determined
+     */
+    public EmbeddedKafka(Path dir, boolean deleteOnClose, Map<String, String> overrides) throws IOException {
+        this.dir = dir;
+        this.deleteOnClose = deleteOnClose;
+        int brokerPort = freePort();
+        int controllerPort = freePort();
+        this.brokers = "localhost:" + brokerPort;
+
+        config.setProperty("process.roles", "broker,controller");
+        config.setProperty("node.id", Integer.toString(NODE_ID));
+        config.setProperty("controller.quorum.voters", NODE_ID + "@localhost:" + controllerPort);
+        config.setProperty("listeners", "PLAINTEXT://" + brokers + ",CONTROLLER://localhost:" + controllerPort);
+        config.setProperty("advertised.listeners", "PLAINTEXT://" + brokers);
+        config.setProperty("controller.listener.names", "CONTROLLER");
+        config.setProperty("listener.security.protocol.map", "PLAINTEXT:PLAINTEXT,CONTROLLER:PLAINTEXT");
+        config.setProperty("inter.broker.listener.name", "PLAINTEXT");
+        config.setProperty("log.dirs", dir.resolve("logs").toAbsolutePath().toString());
+        // there is only one node, so the internal topics can't be replicated
+        config.setProperty("offsets.topic.replication.factor", "1");
+        config.setProperty("offsets.topic.num.partitions", "1");
+        config.setProperty("transaction.state.log.replication.factor", "1");
+        config.setProperty("transaction.state.log.min.isr", "1");
+        config.setProperty("group.initial.rebalance.delay.ms", "0");
+        config.putAll(overrides);
+    }
+
+    /**
+     * Formats the storage and starts the broker, blocking until it accepts client requests
+     *
+     * @param timeoutMillis max time to wait for the broker to be ready
+     * @throws IOException if the broker does not start in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void start(long timeoutMillis) throws IOException, InterruptedException {
+        Path logs = dir.resolve("logs");
+        Files.createDirectories(logs);
+        if (!Files.exists(logs.resolve("meta.properties"))) {
+            Properties meta = new Properties();
+            meta.setProperty("version", "1");
+            meta.setProperty("cluster.id", Uuid.randomUuid().toString());
+            meta.setProperty("node.id", Integer.toString(NODE_ID));
+            try (Writer writer = Files.newBufferedWriter(logs.resolve("meta.properties"), StandardCharsets.UTF_8)) {
+                meta.store(writer, null);
+            }
+        }
+
+        System.out.println("Starting embedded Kafka broker on " + brokers);
+        server = new KafkaRaftServer(KafkaConfig.fromProps(config), Time.SYSTEM);
+        server.startup();
+
+        Properties props = new Properties();
+        props.setProperty(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, brokers);
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try (Admin admin = Admin.create(props)) {
+            while (true) {
+                try {
+                    if (!admin.describeCluster().nodes().get(1, TimeUnit.SECONDS).isEmpty()) {
+                        break;
+                    }
+                } catch (ExecutionException | TimeoutException e) {
+                    // not ready yet
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException("Embedded Kafka broker did not start within " + timeoutMillis + "ms");
+                }
+                Thread.sleep(100);
+            }
+        }
+        System.out.println("Embedded Kafka broker started");
+        System.out.println();
+    }
+
+    /**
+     * Connection string for clients, i.e. the value for the 'kafka.brokers' data store parameter
+     *
+     * @return brokers
+     */
+    public String getBrokers() {
+        return brokers;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (server != null) {
+            System.out.println("Stopping embedded Kafka broker");
+            server.shutdown();
+            server.awaitShutdown();
+            server = null;
+        }
+        if (deleteOnClose && Files.exists(dir)) {
+            // delete children before their parents
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
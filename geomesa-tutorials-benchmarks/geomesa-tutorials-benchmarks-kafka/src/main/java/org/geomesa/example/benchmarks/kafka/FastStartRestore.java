@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks.kafka;
+
+import org.geomesa.example.data.SyntheticData;
+import org.geomesa.example.data.TDriveData;
+import org.geomesa.example.kafka.CacheRestore;
+import org.geomesa.example.quickstart.QuickStartReport;
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.DataStoreFinder;
+import org.geotools.api.data.FeatureWriter;
+import org.geotools.api.data.Transaction;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.DataUtilities;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.geotools.util.factory.Hints;
+import org.locationtech.geomesa.utils.interop.SimpleFeatureTypes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long a restarted consumer takes to restore its live cache from a topic, and how much memory
+ * the cache uses, for different partition and consumer counts.
+ *
+ * For each partition count, synthetic tracks are written to two topics: a full history, with every position
+ * of every entity, and a snapshot, with only the latest position of each entity - the state that a compacted
+ * topic converges to. Each topic is then read back by new consumers with each consumer count.
+ */
+public class FastStartRestore {
+
+    private static final long RESTORE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final String brokers;
+    private final int[] partitions;
+    private final int[] consumers;
+    private final int messages;
+    private final int entities;
+
+    /**
+     * @param brokers kafka brokers
+     * @param partitions topic partition counts to measure
+     * @param consumers consumer counts to measure
+     * @param messages number of messages in the full history
+     * @param entities number of live entities, i.e. messages in the snapshot
+     */
+    public FastStartRestore(String brokers, int[] partitions, int[] consumers, int messages, int entities) {
+        this.brokers = brokers;
+        this.partitions = partitions;
+        this.consumers = consumers;
+        this.messages = messages;
+        this.entities = entities;
+    }
+
+    /**
+     * Runs each combination in turn, and prints the results
+     *
+     * @param report report to record the results in, with keys 'restore.count' and 'restore.N.*'
+     * @throws IOException on error
+     * @throws InterruptedException if interrupted
+     */
+    public void run(QuickStartReport report) throws IOException, InterruptedException {
+        TDriveData template = new TDriveData();
+        List<String> results = new ArrayList<>();
+        int n = 0;
+        for (int p : partitions) {
+            Map<String, String> params = new HashMap<>();
+            params.put("kafka.brokers", brokers);
+            params.put("kafka.topic.partitions", Integer.toString(p));
+            params.put("kafka.consumer.count", "0");
+            DataStore producer = createDataStore(params);
+            List<String> typeNames = new ArrayList<>();
+            try {
+                String history = "restore-history-p" + p;
+                String snapshot = "restore-snapshot-p" + p;
+                typeNames.add(history);
+                typeNames.add(snapshot);
+                System.out.println("Writing " + messages + " messages to '" + history + "' and " + entities +
+                                   " messages to '" + snapshot + "'");
+                write(producer, template, history, messages, messages);
+                // the last position of each entity, i.e. what a compacted topic keeps
+                write(producer, template, snapshot, messages, entities);
+
+                for (String typeName : typeNames) {
+                    for (int c : consumers) {
+                        results.add(step(report, n++, typeName, p, c));
+                    }
+                }
+            } finally {
+                for (String typeName : typeNames) {
+                    try {
+                        producer.removeSchema(typeName);
+                    } catch (IOException e) {
+                        System.err.println("Exception removing schema: " + e.toString());
+                    }
+                }
+                producer.dispose();
+            }
+        }
+        report.put("restore.count", n);
+
+        System.out.println();
+        System.out.println("Consumer restore:");
+        System.out.println(String.format("%-24s %10s %10s %10s %10s %12s %10s", "topic", "partitions", "consumers",
+                                         "messages", "features", "ready ms", "heap MB"));
+        results.forEach(System.out::println);
+        System.out.println();
+    }
+
+    /**
+     * Restores a topic with a new consumer
+     *
+     * @return formatted result row
+     */
+    private String step(QuickStartReport report, int n, String typeName, int p, int c)
+          throws IOException, InterruptedException {
+        System.out.println("Restoring '" + typeName + "' with " + c + " consumers");
+        Map<String, String> params = new HashMap<>();
+        params.put("kafka.brokers", brokers);
+        params.put("kafka.consumer.count", Integer.toString(c));
+        params.put("kafka.consumer.read-back", "Inf");
+        DataStore consumer = createDataStore(params);
+        try {
+            CacheRestore restore = CacheRestore.restore(consumer, typeName, RESTORE_TIMEOUT_MILLIS);
+            System.out.println(restore.report());
+            String prefix = "restore." + n + ".";
+            report.put(prefix + "topic", typeName);
+            report.put(prefix + "partitions", p);
+            report.put(prefix + "consumers", c);
+            report.put(prefix + "messages", restore.getEvents());
+            report.put(prefix + "features", restore.getFeatures());
+            report.put(prefix + "ready.ms", restore.isComplete() ? restore.getMillis() : -1L);
+            report.put(prefix + "heap.bytes", restore.getHeapBytes());
+            return String.format("%-24s %10d %10d %10d %10d %12s %10.1f", typeName, p, c, restore.getEvents(),
+                                 restore.getFeatures(),
+                                 restore.isComplete() ? Long.toString(restore.getMillis()) : "timed out",
+                                 restore.getHeapBytes() / (1024d * 1024d));
+        } finally {
+            consumer.dispose();
+        }
+    }
+
+    /**
+     * Writes synthetic tracks to a new schema
+     *
+     * @param producer producer data store
+     * @param template template data
+     * @param typeName schema name
+     * @param count total number of track positions
+     * @param last number of positions to write, from the end of the tracks
+     */
+    private void write(DataStore producer, TDriveData template, String typeName, long count, long last)
+          throws IOException {
+        SimpleFeatureType sft =
+              SimpleFeatureTypes.createType(typeName, DataUtilities.encodeType(template.getSimpleFeatureType()));
+        sft.getUserData().put(SimpleFeatureTypes.DEFAULT_DATE_KEY, "dtg");
+        producer.createSchema(sft);
+        SyntheticData data = new SyntheticData(template, SyntheticData.Mode.TRACKS, count, 0L, 0.5d, 1, entities);
+        try (Stream<SimpleFeature> stream = data.streamTestData();
+             FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                   producer.getFeatureWriterAppend(typeName, Transaction.AUTO_COMMIT)) {
+            Iterator<SimpleFeature> features = stream.iterator();
+            long skip = count - last;
+            for (long i = 0; features.hasNext(); i++) {
+                SimpleFeature feature = features.next();
+                if (i < skip) {
+                    continue;
+                }
+                SimpleFeature toWrite = writer.next();
+                toWrite.setAttributes(feature.getAttributes());
+                ((FeatureIdImpl) toWrite.getIdentifier()).setID(feature.getID());
+                toWrite.getUserData().put(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+                writer.write();
+            }
+        }
+    }
+
+    private static DataStore createDataStore(Map<String, String> params) throws IOException {
+        DataStore datastore = DataStoreFinder.getDataStore(params);
+        if (datastore == null) {
+            throw new RuntimeException("Could not create data store with provided parameters");
+        }
+        return datastore;
+    }
+}
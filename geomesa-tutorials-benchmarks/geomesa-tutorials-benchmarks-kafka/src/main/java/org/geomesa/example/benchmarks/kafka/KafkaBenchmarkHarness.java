@@ -0,0 +1,516 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks.kafka;
+
+import org.HdrHistogram.Histogram;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.geomesa.example.data.TDriveData;
+import org.geomesa.example.kafka.KafkaLatencyProbe;
+import org.geomesa.example.kafka.KafkaListener;
+import org.geomesa.example.kafka.KafkaQuickStart;
+import org.geomesa.example.kafka.KafkaStreamsQuickStart;
+import org.geomesa.example.quickstart.CommandLineDataStore;
+import org.geomesa.example.quickstart.QueryLoadGenerator;
+import org.geomesa.example.quickstart.QuickStartReport;
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.DataStoreFinder;
+import org.geotools.api.data.FeatureEvent;
+import org.geotools.api.data.FeatureListener;
+import org.geotools.api.data.Query;
+import org.geotools.api.data.SimpleFeatureSource;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.filter.Filter;
+import org.geotools.filter.text.cql2.CQLException;
+import org.geotools.filter.text.ecql.ECQL;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the Kafka quickstart flows headless against an embedded broker, so that they can be benchmarked
+ * without any external services:
+ *
+ * <ol>
+ *     <li>KafkaQuickStart writes synthetic t-drive data at a target rate, while KafkaListener aggregates
+ *     the events and queries are run against a live consumer cache</li>
+ *     <li>KafkaLatencyProbe measures the time for features to become visible in a consumer, at increasing rates</li>
+ *     <li>optionally, KafkaStreamsQuickStart runs its proximity topology</li>
+ * </ol>
+ *
+ * Producer throughput, consumer lag and live-cache query latencies are printed at the end, and can be
+ * written out through the 'report-file' option.
+ *
+ * Alternatively, the 'scaling' option sweeps the consumer count, partition count and number of live
+ * entities instead - see ConsumerScaling - the 'live-queries' option sweeps the in-memory index
+ * settings, cache size and update rate - see LiveCacheQueries - and the 'restore' option measures how
+ * quickly a restarted consumer can restore its cache - see FastStartRestore.
+ */
+public class KafkaBenchmarkHarness implements Runnable {
+
+    private static final long STARTUP_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private final Path dataDir;
+    private final Map<String, String> brokerConfig = new HashMap<>();
+    private final int features;
+    private final String replayRate;
+    private final int batchSize;
+    private final int drainSeconds;
+    private final String rates;
+    private final int stepSeconds;
+    private final int entities;
+    private final int queryThreads;
+    private final int queryDuration;
+    private final int queryWarmup;
+    private final boolean streams;
+    private final boolean scaling;
+    private final int[] scalingPartitions;
+    private final int[] scalingConsumers;
+    private final int[] scalingEntities;
+    private final int scalingMessages;
+    private final boolean liveQueries;
+    private final Map<String, Map<String, String>> indexConfigs;
+    private final int[] liveEntities;
+    private final int[] liveRates;
+    private final int liveDuration;
+    private final boolean restore;
+    private final int[] restorePartitions;
+    private final int[] restoreConsumers;
+    private final int restoreMessages;
+    private final int restoreEntities;
+    private final Path reportFile;
+
+    private final QuickStartReport report = new QuickStartReport();
+
+    public KafkaBenchmarkHarness(String[] args) throws ParseException {
+        Options options = new Options();
+        options.addOption(Option.builder().longOpt("data-dir").argName("data-dir").hasArg()
+                                .desc("Directory for the broker logs, which will be kept after running " +
+                                      "(default a temporary directory, which is deleted)")
+                                .build());
+        options.addOption(Option.builder().longOpt("broker-config").argName("key=value").hasArg()
+                                .desc("Additional broker configuration, e.g. 'num.partitions=4' (may be repeated)")
+                                .build());
+        options.addOption(Option.builder().longOpt("features").argName("features").hasArg()
+                                .desc("Number of synthetic features written by the quickstart (default 20000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("replay-rate").argName("replay-rate").hasArg()
+                                .desc("Target number of features per second written by the quickstart (default 2000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("batch-size").argName("batch-size").hasArg()
+                                .desc("Number of features the quickstart writes at once (default 100)")
+                                .build());
+        options.addOption(Option.builder().longOpt("drain").argName("drain").hasArg()
+                                .desc("Max number of seconds to wait for the consumer to catch up after writing (default 10)")
+                                .build());
+        options.addOption(Option.builder().longOpt("rates").argName("rates").hasArg()
+                                .desc("Comma-separated write rates for the latency probe, in features per second " +
+                                      "(default 1000,5000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("step-duration").argName("step-duration").hasArg()
+                                .desc("Number of seconds the latency probe writes at each rate (default 10)")
+                                .build());
+        options.addOption(Option.builder().longOpt("entities").argName("entities").hasArg()
+                                .desc("Number of distinct feature IDs written by the latency probe (default 1000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("query-threads").argName("query-threads").hasArg()
+                                .desc("Number of threads querying the live consumer cache (default 4)")
+                                .build());
+        options.addOption(Option.builder().longOpt("query-duration").argName("query-duration").hasArg()
+                                .desc("Number of seconds to query the live consumer cache, after the warm-up (default 10)")
+                                .build());
+        options.addOption(Option.builder().longOpt("query-warmup").argName("query-warmup").hasArg()
+                                .desc("Number of seconds to query the live consumer cache before measuring (default 1)")
+                                .build());
+        options.addOption(Option.builder().longOpt("streams")
+                                .desc("Also run the Kafka Streams quickstart")
+                                .build());
+        options.addOption(Option.builder().longOpt("scaling")
+                                .desc("Measure how the live cache scales with consumers, partitions and entities, " +
+                                      "instead of running the quickstarts")
+                                .build());
+        options.addOption(Option.builder().longOpt("scaling-partitions").argName("scaling-partitions").hasArg()
+                                .desc("Comma-separated topic partition counts to measure (default 1,4)")
+                                .build());
+        options.addOption(Option.builder().longOpt("scaling-consumers").argName("scaling-consumers").hasArg()
+                                .desc("Comma-separated consumer counts to measure (default 1,2,4)")
+                                .build());
+        options.addOption(Option.builder().longOpt("scaling-entities").argName("scaling-entities").hasArg()
+                                .desc("Comma-separated numbers of live entities to measure (default 1000,10000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("scaling-messages").argName("scaling-messages").hasArg()
+                                .desc("Number of messages to write for each combination (default 100000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("live-queries")
+                                .desc("Measure bbox, time and attribute query latency against the live cache while " +
+                                      "it's updated, for different index settings, instead of running the quickstarts")
+                                .build());
+        options.addOption(Option.builder().longOpt("index-config").argName("name:key=value;key=value").hasArg()
+                                .desc("Named set of data store parameters for the live cache index, e.g. " +
+                                      "'grid:kafka.index.resolution.x=1440;kafka.index.resolution.y=720' (may be " +
+                                      "repeated, default GeoMesa defaults, a finer grid, tiers, event-time and cqengine)")
+                                .build());
+        options.addOption(Option.builder().longOpt("live-entities").argName("live-entities").hasArg()
+                                .desc("Comma-separated numbers of live entities, i.e. cache sizes (default 1000,100000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("live-rates").argName("live-rates").hasArg()
+                                .desc("Comma-separated update rates, in features per second (default 1000,10000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("live-duration").argName("live-duration").hasArg()
+                                .desc("Number of seconds to query each combination (default 15)")
+                                .build());
+        options.addOption(Option.builder().longOpt("restore")
+                                .desc("Measure how long a new consumer takes to restore its cache from a topic, " +
+                                      "instead of running the quickstarts")
+                                .build());
+        options.addOption(Option.builder().longOpt("restore-partitions").argName("restore-partitions").hasArg()
+                                .desc("Comma-separated topic partition counts to measure (default 1,4)")
+                                .build());
+        options.addOption(Option.builder().longOpt("restore-consumers").argName("restore-consumers").hasArg()
+                                .desc("Comma-separated consumer counts to measure (default 1,4)")
+                                .build());
+        options.addOption(Option.builder().longOpt("restore-messages").argName("restore-messages").hasArg()
+                                .desc("Number of messages in the full topic history (default 200000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("restore-entities").argName("restore-entities").hasArg()
+                                .desc("Number of live entities, i.e. messages in the snapshot topic (default 10000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("report-file").argName("report-file").hasArg()
+                                .desc("Write a summary of the results to the given file, in properties format")
+                                .build());
+
+        CommandLine command = CommandLineDataStore.parseArgs(getClass(), options, args);
+        dataDir = command.hasOption("data-dir") ? Paths.get(command.getOptionValue("data-dir")) : null;
+        if (command.hasOption("broker-config")) {
+            for (String config : command.getOptionValues("broker-config")) {
+                int eq = config.indexOf('=');
+                if (eq < 1) {
+                    throw new ParseException("Invalid value for 'broker-config', expected key=value: " + config);
+                }
+                brokerConfig.put(config.substring(0, eq).trim(), config.substring(eq + 1).trim());
+            }
+        }
+        features = CommandLineDataStore.getIntOption(command, "features", 20000);
+        replayRate = command.getOptionValue("replay-rate", "2000");
+        batchSize = CommandLineDataStore.getIntOption(command, "batch-size", 100);
+        drainSeconds = CommandLineDataStore.getNonNegativeIntOption(command, "drain", 10);
+        rates = command.getOptionValue("rates", "1000,5000");
+        stepSeconds = CommandLineDataStore.getIntOption(command, "step-duration", 10);
+        entities = CommandLineDataStore.getIntOption(command, "entities", 1000);
+        queryThreads = CommandLineDataStore.getIntOption(command, "query-threads", 4);
+        queryDuration = CommandLineDataStore.getIntOption(command, "query-duration", 10);
+        queryWarmup = CommandLineDataStore.getNonNegativeIntOption(command, "query-warmup", 1);
+        streams = command.hasOption("streams");
+        scaling = command.hasOption("scaling");
+        scalingPartitions = getIntsOption(command, "scaling-partitions", "1,4");
+        scalingConsumers = getIntsOption(command, "scaling-consumers", "1,2,4");
+        scalingEntities = getIntsOption(command, "scaling-entities", "1000,10000");
+        scalingMessages = CommandLineDataStore.getIntOption(command, "scaling-messages", 100000);
+        liveQueries = command.hasOption("live-queries");
+        if (command.hasOption("index-config")) {
+            indexConfigs = new LinkedHashMap<>();
+            for (String config : command.getOptionValues("index-config")) {
+                int colon = config.indexOf(':');
+                if (colon < 1) {
+                    throw new ParseException("Invalid value for 'index-config', expected name:key=value;key=value: " +
+                                             config);
+                }
+                Map<String, String> params = new HashMap<>();
+                for (String param : config.substring(colon + 1).split(";")) {
+                    int eq = param.indexOf('=');
+                    if (eq < 1) {
+                        throw new ParseException("Invalid value for 'index-config', expected key=value: " + param);
+                    }
+                    params.put(param.substring(0, eq).trim(), param.substring(eq + 1).trim());
+                }
+                indexConfigs.put(config.substring(0, colon).trim(), params);
+            }
+        } else {
+            indexConfigs = LiveCacheQueries.defaultIndexConfigs();
+        }
+        liveEntities = getIntsOption(command, "live-entities", "1000,100000");
+        liveRates = getIntsOption(command, "live-rates", "1000,10000");
+        liveDuration = CommandLineDataStore.getIntOption(command, "live-duration", 15);
+        restore = command.hasOption("restore");
+        restorePartitions = getIntsOption(command, "restore-partitions", "1,4");
+        restoreConsumers = getIntsOption(command, "restore-consumers", "1,4");
+        restoreMessages = CommandLineDataStore.getIntOption(command, "restore-messages", 200000);
+        restoreEntities = CommandLineDataStore.getIntOption(command, "restore-entities", 10000);
+        if ((scaling ? 1 : 0) + (liveQueries ? 1 : 0) + (restore ? 1 : 0) > 1) {
+            throw new ParseException("Only one of the options 'scaling', 'live-queries' and 'restore' can be used");
+        }
+        reportFile = command.hasOption("report-file") ? Paths.get(command.getOptionValue("report-file")) : null;
+    }
+
+    @Override
+    public void run() {
+        try {
+            Path dir = dataDir == null ? Files.createTempDirectory("geomesa-kafka-benchmark") : dataDir;
+            try (EmbeddedKafka kafka = new EmbeddedKafka(dir, dataDir == null, brokerConfig)) {
+                kafka.start(STARTUP_TIMEOUT_MILLIS);
+                if (scaling) {
+                    new ConsumerScaling(kafka.getBrokers(), scalingPartitions, scalingConsumers, scalingEntities,
+                                        scalingMessages, drainSeconds, queryDuration).run(report);
+                } else if (liveQueries) {
+                    new LiveCacheQueries(kafka.getBrokers(), indexConfigs, liveEntities, liveRates, liveDuration,
+                                         drainSeconds, queryThreads).run(report);
+                } else if (restore) {
+                    new FastStartRestore(kafka.getBrokers(), restorePartitions, restoreConsumers, restoreMessages,
+                                         restoreEntities).run(report);
+                } else {
+                    produce(kafka.getBrokers());
+                    probe(kafka.getBrokers());
+                    if (streams) {
+                        streams(kafka.getBrokers());
+                    }
+                }
+            }
+            if (!scaling && !liveQueries && !restore) {
+                printSummary();
+            }
+            if (reportFile != null) {
+                report.write(reportFile);
+                System.out.println("Wrote report to " + reportFile.toAbsolutePath());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Interrupted");
+        } catch (Exception e) {
+            throw new RuntimeException("Error running benchmark:", e);
+        }
+    }
+
+    /**
+     * Runs the quickstart, along with a listener and concurrent queries against a live consumer cache
+     *
+     * @param brokers kafka brokers
+     * @throws Exception on error
+     */
+    private void produce(String brokers) throws Exception {
+        SimpleFeatureType sft = new TDriveData().getSimpleFeatureType();
+        String typeName = sft.getTypeName();
+
+        Map<String, String> params = new HashMap<>();
+        params.put("kafka.brokers", brokers);
+        params.put("kafka.consumer.count", "0");
+        DataStore producer = createDataStore(params);
+        params.put("kafka.consumer.count", "1");
+        DataStore consumer = null;
+        SimpleFeatureSource source = null;
+        FeatureListener counter = null;
+        Thread listenerThread = null;
+        try {
+            // create the schema up front, so that the listener and consumer are attached before anything is written
+            // the quickstart will re-use the existing schema
+            producer.createSchema(sft);
+
+            consumer = createDataStore(params);
+            AtomicLong received = new AtomicLong(0);
+            counter = event -> {
+                if (event.getType() == FeatureEvent.Type.CHANGED) {
+                    received.incrementAndGet();
+                }
+            };
+            source = consumer.getFeatureSource(typeName);
+            source.addFeatureListener(counter);
+
+            KafkaListener listener =
+                  new KafkaListener(new String[] { "--kafka.brokers", brokers, "--aggregate", "--aggregate-interval", "5" });
+            listenerThread = new Thread(listener, "kafka-listener");
+            listenerThread.setDaemon(true);
+            listenerThread.start();
+
+            // query the consumer cache while it's being updated
+            List<Query> queries = getLiveQueries(typeName);
+            QueryLoadGenerator generator =
+                  new QueryLoadGenerator(consumer, queries, queryThreads, 0, TimeUnit.SECONDS.toMillis(queryDuration),
+                                         TimeUnit.SECONDS.toMillis(queryWarmup));
+            AtomicReference<List<Histogram>> latencies = new AtomicReference<>();
+            Thread queryThread = new Thread(() -> {
+                try {
+                    latencies.set(generator.run());
+                } catch (IOException e) {
+                    System.err.println("Exception querying the consumer cache: " + e.toString());
+                }
+            }, "live-query-load");
+            queryThread.setDaemon(true);
+            queryThread.start();
+
+            KafkaQuickStart quickstart =
+                  new KafkaQuickStart(new String[] { "--kafka.brokers", brokers, "--automated",
+                                                     "--synthetic", Integer.toString(features),
+                                                     "--replay-rate", replayRate,
+                                                     "--batch-size", Integer.toString(batchSize) });
+            quickstart.run();
+
+            // producer throughput, as recorded by the quickstart
+            if (quickstart.getReport().get("ingest.features") == null) {
+                throw new IllegalStateException("Quickstart did not finish writing features");
+            }
+            long sent = Long.parseLong(quickstart.getReport().get("ingest.features"));
+            long millis = Long.parseLong(quickstart.getReport().get("ingest.millis"));
+            report.put("producer.features", sent);
+            report.put("producer.millis", millis);
+            report.put("producer.rate", sent * 1000d / Math.max(1L, millis));
+
+            // consumer lag - how long it takes the consumer to catch up once the producer has finished
+            long end = System.currentTimeMillis();
+            long deadline = end + TimeUnit.SECONDS.toMillis(drainSeconds);
+            while (received.get() < sent && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            report.put("consumer.received", received.get());
+            report.put("consumer.catchup.ms", received.get() < sent ? -1L : System.currentTimeMillis() - end);
+
+            queryThread.join();
+            if (latencies.get() != null) {
+                for (int i = 0; i < queries.size(); i++) {
+                    report.query(i, ECQL.toCQL(queries.get(i).getFilter()), latencies.get().get(i),
+                                 generator.getErrors()[i]);
+                }
+            }
+        } finally {
+            if (listenerThread != null) {
+                // the listener runs until interrupted
+                listenerThread.interrupt();
+                listenerThread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+            if (source != null && counter != null) {
+                source.removeFeatureListener(counter);
+            }
+            if (consumer != null) {
+                consumer.dispose();
+            }
+            producer.dispose();
+        }
+    }
+
+    /**
+     * Runs the latency probe
+     *
+     * @param brokers kafka brokers
+     * @throws ParseException if the probe options are invalid
+     */
+    private void probe(String brokers) throws ParseException {
+        KafkaLatencyProbe probe =
+              new KafkaLatencyProbe(new String[] { "--kafka.brokers", brokers, "--rates", rates,
+                                                   "--step-duration", Integer.toString(stepSeconds),
+                                                   "--entities", Integer.toString(entities) });
+        probe.run();
+        report.putAll(probe.getReport());
+    }
+
+    /**
+     * Runs the streams quickstart
+     *
+     * @param brokers kafka brokers
+     * @throws ParseException if the quickstart options are invalid
+     */
+    private void streams(String brokers) throws ParseException {
+        KafkaStreamsQuickStart quickstart =
+              new KafkaStreamsQuickStart(new String[] { "--kafka.brokers", brokers, "--automated" });
+        long start = System.currentTimeMillis();
+        quickstart.run();
+        report.put("streams.millis", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Queries run against the live consumer cache - everything, and a bounding box over central Beijing,
+     * where the synthetic t-drive data is located
+     *
+     * @param typeName type name
+     * @return queries
+     * @throws CQLException if the filters can't be parsed
+     */
+    private static List<Query> getLiveQueries(String typeName) throws CQLException {
+        List<Query> queries = new ArrayList<>();
+        queries.add(new Query(typeName, Filter.INCLUDE));
+        queries.add(new Query(typeName, ECQL.toFilter("bbox(geom,116.3,39.85,116.45,39.95)")));
+        return queries;
+    }
+
+    private static int[] getIntsOption(CommandLine command, String option, String defaultValue)
+          throws ParseException {
+        String[] split = command.getOptionValue(option, defaultValue).split(",");
+        int[] values = new int[split.length];
+        for (int i = 0; i < split.length; i++) {
+            try {
+                values[i] = Integer.parseInt(split[i].trim());
+            } catch (NumberFormatException e) {
+                values[i] = -1;
+            }
+            if (values[i] < 1) {
+                throw new ParseException("Invalid value for '" + option + "', expected positive integers: " + split[i]);
+            }
+        }
+        return values;
+    }
+
+    private void printSummary() {
+        System.out.println();
+        System.out.println("Embedded Kafka benchmark results:");
+        System.out.println(String.format("  producer: %s features in %sms (%.1f features/sec)",
+                                         report.get("producer.features"), report.get("producer.millis"),
+                                         Double.parseDouble(report.get("producer.rate"))));
+        String catchup = report.get("consumer.catchup.ms");
+        System.out.println("  consumer: received " + report.get("consumer.received") + " features, " +
+                           ("-1".equals(catchup) ? "did not catch up" : "caught up " + catchup + "ms after the producer"));
+        int queries = Integer.parseInt(report.get("query.count") == null ? "0" : report.get("query.count"));
+        for (int i = 0; i < queries; i++) {
+            System.out.println(String.format("  live query '%s': count=%s p50=%sms p99=%sms max=%sms",
+                                             report.get("query." + i + ".name"), report.get("query." + i + ".count"),
+                                             report.get("query." + i + ".p50.ms"), report.get("query." + i + ".p99.ms"),
+                                             report.get("query." + i + ".max.ms")));
+        }
+        int steps = Integer.parseInt(report.get("latency.count") == null ? "0" : report.get("latency.count"));
+        for (int i = 0; i < steps; i++) {
+            System.out.println(String.format("  latency at %s/s: p50=%sms p99=%sms max=%sms",
+                                             report.get("latency." + i + ".target"),
+                                             report.get("latency." + i + ".p50.ms"),
+                                             report.get("latency." + i + ".p99.ms"),
+                                             report.get("latency." + i + ".max.ms")));
+        }
+        if (report.get("streams.millis") != null) {
+            System.out.println("  streams quickstart: " + report.get("streams.millis") + "ms");
+        }
+        System.out.println();
+    }
+
+    private static DataStore createDataStore(Map<String, String> params) throws IOException {
+        DataStore datastore = DataStoreFinder.getDataStore(params);
+        if (datastore == null) {
+            throw new RuntimeException("Could not create data store with provided parameters");
+        }
+        return datastore;
+    }
+
+    public static void main(String[] args) {
+        try {
+            new KafkaBenchmarkHarness(args).run();
+        } catch (ParseException e) {
+            System.exit(1);
+        } catch (Throwable e) {
+            e.printStackTrace();
+            System.exit(2);
+        }
+        System.exit(0);
+    }
+}
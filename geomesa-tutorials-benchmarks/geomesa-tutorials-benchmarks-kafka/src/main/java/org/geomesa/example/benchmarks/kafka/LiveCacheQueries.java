@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks.kafka;
+
+import org.HdrHistogram.Histogram;
+import org.geomesa.example.data.SyntheticData;
+import org.geomesa.example.data.TDriveData;
+import org.geomesa.example.kafka.ReplayPacer;
+import org.geomesa.example.quickstart.QueryLoadGenerator;
+import org.geomesa.example.quickstart.QuickStartReport;
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.DataStoreFinder;
+import org.geotools.api.data.FeatureEvent;
+import org.geotools.api.data.FeatureListener;
+import org.geotools.api.data.FeatureWriter;
+import org.geotools.api.data.Query;
+import org.geotools.api.data.SimpleFeatureSource;
+import org.geotools.api.data.Transaction;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.geotools.filter.text.cql2.CQLException;
+import org.geotools.filter.text.ecql.ECQL;
+import org.geotools.util.factory.Hints;
+import org.locationtech.geomesa.utils.interop.SimpleFeatureTypes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Measures the latency of bbox, time and attribute queries against a Kafka live feature cache while it is
+ * being updated, for different in-memory index settings, cache sizes and update rates.
+ *
+ * For each combination, synthetic tracks are written to a new schema. The first position of each entity is
+ * written as fast as possible, to fill the cache. Then the remaining positions are written at the target
+ * rate, while the queries are run concurrently against the consumer.
+ */
+public class LiveCacheQueries {
+
+    // number of features written at once
+    private static final int BATCH = 100;
+
+    // query labels, used for the output columns and report keys
+    private static final String[] QUERIES = new String[] { "bbox", "time", "attribute" };
+
+    private final String brokers;
+    private final Map<String, Map<String, String>> indexConfigs;
+    private final int[] entities;
+    private final int[] rates;
+    private final int durationSeconds;
+    private final int drainSeconds;
+    private final int queryThreads;
+
+    /**
+     * @param brokers kafka brokers
+     * @param indexConfigs index settings to measure, as data store parameters, keyed by name
+     * @param entities numbers of live entities (i.e. cache sizes) to measure
+     * @param rates update rates to measure, in features per second
+     * @param durationSeconds how long to measure each combination
+     * @param drainSeconds max time to wait for the cache to fill
+     * @param queryThreads number of threads running queries
+     */
+    public LiveCacheQueries(String brokers,
+                            Map<String, Map<String, String>> indexConfigs,
+                            int[] entities,
+                            int[] rates,
+                            int durationSeconds,
+                            int drainSeconds,
+                            int queryThreads) {
+        this.brokers = brokers;
+        this.indexConfigs = indexConfigs;
+        this.entities = entities;
+        this.rates = rates;
+        this.durationSeconds = durationSeconds;
+        this.drainSeconds = drainSeconds;
+        this.queryThreads = queryThreads;
+    }
+
+    /**
+     * The index settings measured by default: the GeoMesa defaults, a finer spatial grid, explicit tiers,
+     * event-time ordering, and CQEngine attribute indices
+     *
+     * @return index settings, keyed by name
+     */
+    public static Map<String, Map<String, String>> defaultIndexConfigs() {
+        Map<String, Map<String, String>> configs = new LinkedHashMap<>();
+        configs.put("default", new HashMap<>());
+        Map<String, String> grid = new HashMap<>();
+        grid.put("kafka.index.resolution.x", "1440");
+        grid.put("kafka.index.resolution.y", "720");
+        configs.put("fine-grid", grid);
+        Map<String, String> tiers = new HashMap<>();
+        tiers.put("kafka.index.tiers", "1:1,4:4,32:32,360:180");
+        configs.put("tiers", tiers);
+        Map<String, String> eventTime = new HashMap<>();
+        eventTime.put("kafka.cache.event-time", "dtg");
+        eventTime.put("kafka.cache.event-time.ordering", "true");
+        configs.put("event-time", eventTime);
+        Map<String, String> cqengine = new HashMap<>();
+        cqengine.put("kafka.index.cqengine", "geom:default,dtg:navigable,taxiId:hash");
+        configs.put("cqengine", cqengine);
+        return configs;
+    }
+
+    /**
+     * Runs each combination in turn, and prints the results
+     *
+     * @param report report to record the results in, with keys 'live.count' and 'live.N.*'
+     * @throws IOException on error
+     * @throws InterruptedException if interrupted
+     */
+    public void run(QuickStartReport report) throws IOException, InterruptedException {
+        List<String> results = new ArrayList<>();
+        int n = 0;
+        for (Map.Entry<String, Map<String, String>> config : indexConfigs.entrySet()) {
+            for (int e : entities) {
+                for (int rate : rates) {
+                    results.add(step(report, n++, config.getKey(), config.getValue(), e, rate));
+                }
+            }
+        }
+        report.put("live.count", n);
+
+        System.out.println();
+        System.out.println("Live cache query latency (ms):");
+        StringBuilder header = new StringBuilder(String.format("%-12s %10s %10s %10s %10s", "index", "entities",
+                                                               "target/s", "updates/s", "cached"));
+        for (String query : QUERIES) {
+            header.append(String.format(" %14s %14s", query + " p50", query + " p99"));
+        }
+        System.out.println(header);
+        results.forEach(System.out::println);
+        System.out.println();
+    }
+
+    /**
+     * Measures a single combination
+     *
+     * @return formatted result row
+     */
+    private String step(QuickStartReport report,
+                        int n,
+                        String indexName,
+                        Map<String, String> indexParams,
+                        int e,
+                        int rate) throws IOException, InterruptedException {
+        System.out.println("Measuring index '" + indexName + "' with " + e + " entities at " + rate + " updates/sec");
+
+        TDriveData template = new TDriveData();
+        String typeName = "live-queries-" + n;
+        SimpleFeatureType sft =
+              SimpleFeatureTypes.createType(typeName, DataUtilities.encodeType(template.getSimpleFeatureType()));
+        sft.getUserData().put(SimpleFeatureTypes.DEFAULT_DATE_KEY, "dtg");
+
+        Map<String, String> params = new HashMap<>();
+        params.put("kafka.brokers", brokers);
+        params.put("kafka.consumer.count", "0");
+        DataStore producer = createDataStore(params);
+        DataStore consumer = null;
+        SimpleFeatureSource source = null;
+        FeatureListener listener = null;
+        // one pass to fill the cache, then enough updates to last for the measured period
+        long count = e + (long) rate * durationSeconds;
+        try (Stream<SimpleFeature> stream =
+                   new SyntheticData(template, SyntheticData.Mode.TRACKS, count, 0L, 0.5d, 1, e).streamTestData()) {
+            producer.createSchema(sft);
+
+            params.put("kafka.consumer.count", "1");
+            params.putAll(indexParams);
+            consumer = createDataStore(params);
+            AtomicLong received = new AtomicLong(0);
+            listener = event -> {
+                if (event.getType() == FeatureEvent.Type.CHANGED) {
+                    received.incrementAndGet();
+                }
+            };
+            source = consumer.getFeatureSource(typeName);
+            source.addFeatureListener(listener);
+
+            Iterator<SimpleFeature> features = stream.iterator();
+            try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                       producer.getFeatureWriterAppend(typeName, Transaction.AUTO_COMMIT)) {
+                // fill the cache with the first position of each entity
+                for (int i = 0; i < e && features.hasNext(); i++) {
+                    write(writer, features.next());
+                }
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds);
+                while (received.get() < e && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+
+                // run the queries while the remaining positions are written at the target rate
+                List<Query> queries = getQueries(typeName);
+                QueryLoadGenerator generator =
+                      new QueryLoadGenerator(consumer, queries, queryThreads, 0,
+                                             TimeUnit.SECONDS.toMillis(durationSeconds), 0L);
+                AtomicReference<List<Histogram>> latencies = new AtomicReference<>();
+                Thread queryThread = new Thread(() -> {
+                    try {
+                        latencies.set(generator.run());
+                    } catch (IOException ex) {
+                        System.err.println("Exception querying the live cache: " + ex.toString());
+                    }
+                }, "live-cache-queries");
+                queryThread.setDaemon(true);
+                queryThread.start();
+
+                long receivedStart = received.get();
+                long start = System.nanoTime();
+                long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+                ReplayPacer pacer = ReplayPacer.rate(rate, BATCH);
+                List<SimpleFeature> batch = new ArrayList<>(BATCH);
+                while (features.hasNext() && System.nanoTime() < end) {
+                    batch.clear();
+                    while (batch.size() < BATCH && features.hasNext()) {
+                        batch.add(features.next());
+                    }
+                    pacer.await(batch);
+                    for (SimpleFeature feature : batch) {
+                        write(writer, feature);
+                    }
+                }
+                queryThread.join();
+                double updates = (received.get() - receivedStart) * (double) TimeUnit.SECONDS.toNanos(1) /
+                                 Math.max(1L, System.nanoTime() - start);
+                long cached = count(source);
+
+                String prefix = "live." + n + ".";
+                report.put(prefix + "index", indexName);
+                report.put(prefix + "entities", e);
+                report.put(prefix + "target", rate);
+                report.put(prefix + "updates", updates);
+                report.put(prefix + "cached", cached);
+                StringBuilder row = new StringBuilder(String.format("%-12s %10d %10d %10.1f %10d", indexName, e, rate,
+                                                                    updates, cached));
+                for (int q = 0; q < QUERIES.length; q++) {
+                    Histogram histogram = latencies.get() == null ? null : latencies.get().get(q);
+                    double p50 = histogram == null ? -1d : histogram.getValueAtPercentile(50) / 1000d;
+                    double p99 = histogram == null ? -1d : histogram.getValueAtPercentile(99) / 1000d;
+                    report.put(prefix + QUERIES[q] + ".filter", ECQL.toCQL(queries.get(q).getFilter()));
+                    report.put(prefix + QUERIES[q] + ".count", histogram == null ? 0L : histogram.getTotalCount());
+                    report.put(prefix + QUERIES[q] + ".p50.ms", p50);
+                    report.put(prefix + QUERIES[q] + ".p99.ms", p99);
+                    row.append(String.format(" %14.3f %14.3f", p50, p99));
+                }
+                return row.toString();
+            }
+        } catch (CQLException ex) {
+            throw new IllegalStateException("Invalid query filter", ex);
+        } finally {
+            if (source != null && listener != null) {
+                source.removeFeatureListener(listener);
+            }
+            if (consumer != null) {
+                consumer.dispose();
+            }
+            try {
+                producer.removeSchema(typeName);
+            } catch (IOException ex) {
+                System.err.println("Exception removing schema: " + ex.toString());
+            }
+            producer.dispose();
+        }
+    }
+
+    /**
+     * Queries typical of a live client: a bounding box, a bounding box and time window, and a lookup by entity
+     *
+     * @param typeName type name
+     * @return queries, in the same order as the labels
+     * @throws CQLException if the filters can't be parsed
+     */
+    private static List<Query> getQueries(String typeName) throws CQLException {
+        List<Query> queries = new ArrayList<>();
+        queries.add(new Query(typeName, ECQL.toFilter("bbox(geom,116.3,39.85,116.45,39.95)")));
+        queries.add(new Query(typeName, ECQL.toFilter("bbox(geom,116.3,39.85,116.45,39.95) AND " +
+                                                      "dtg DURING 2008-02-02T00:00:00Z/2008-02-02T06:00:00Z")));
+        queries.add(new Query(typeName, ECQL.toFilter("taxiId IN ('1','10','100')")));
+        return queries;
+    }
+
+    private static void write(FeatureWriter<SimpleFeatureType, SimpleFeature> writer, SimpleFeature feature)
+          throws IOException {
+        SimpleFeature toWrite = writer.next();
+        toWrite.setAttributes(feature.getAttributes());
+        ((FeatureIdImpl) toWrite.getIdentifier()).setID(feature.getID());
+        toWrite.getUserData().put(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+        writer.write();
+    }
+
+    private static long count(SimpleFeatureSource source) throws IOException {
+        long count = 0;
+        try (SimpleFeatureIterator iterator = source.getFeatures().features()) {
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static DataStore createDataStore(Map<String, String> params) throws IOException {
+        DataStore datastore = DataStoreFinder.getDataStore(params);
+        if (datastore == null) {
+            throw new RuntimeException("Could not create data store with provided parameters");
+        }
+        return datastore;
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.benchmarks.matrix;
+
+import org.geomesa.example.quickstart.QuickStartReport;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Runs the quickstart ingest and queries against each configured backend, using the same synthetic data
+ * and query load for each one, and writes the combined results as JSON and CSV.
+ *
+ * Each backend is run in a separate JVM from its shaded quickstart jar, as the backends bring in conflicting
+ * versions of their client libraries. Results are collected through the quickstart 'report-file' option.
+ *
+ * See 'workload.properties' for the available settings.
+ */
+public class BenchmarkMatrix {
+
+    private static final String[] STATS = new String[] { "mean", "p50", "p95", "p99", "max" };
+
+    private final Properties workload;
+    private final Path reportDir;
+
+    public BenchmarkMatrix(Properties workload) {
+        this.workload = workload;
+        this.reportDir = Paths.get(workload.getProperty("report.dir", "benchmark-results"));
+    }
+
+    /**
+     * Runs each backend in turn, then writes out the combined results
+     *
+     * @throws IOException on error
+     * @throws InterruptedException if interrupted while waiting for a backend to finish
+     */
+    public void run() throws IOException, InterruptedException {
+        String backends = workload.getProperty("backends");
+        if (backends == null || backends.trim().isEmpty()) {
+            throw new IllegalArgumentException("No backends configured - set the 'backends' property");
+        }
+        Files.createDirectories(reportDir);
+        List<Result> results = new ArrayList<>();
+        for (String backend : backends.split(",")) {
+            results.add(run(backend.trim()));
+        }
+        writeJson(results, reportDir.resolve("results.json"));
+        writeCsv(results, reportDir.resolve("results.csv"));
+        System.out.println("Wrote results to " + reportDir.toAbsolutePath());
+    }
+
+    private Result run(String backend) throws IOException, InterruptedException {
+        String classpath = required("backend." + backend + ".classpath");
+        String main = required("backend." + backend + ".main");
+        Path report = reportDir.resolve(backend + ".properties");
+        Files.deleteIfExists(report);
+
+        // each run has to start from an empty store, otherwise data from previous runs skews the results
+        String dataDir = workload.getProperty("backend." + backend + ".data.dir");
+        if (dataDir != null && size(Paths.get(dataDir)) > 0) {
+            throw new IOException("Data directory for backend '" + backend + "' is not empty - " +
+                                  "delete " + dataDir + " before running, so that the results are comparable");
+        }
+        List<String> args = split(workload.getProperty("backend." + backend + ".args", ""));
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(split(workload.getProperty("jvm.args", "")));
+        command.add("-cp");
+        command.add(classpath);
+        command.add(main);
+        command.addAll(args);
+        if (dataDir == null && !args.contains("--cleanup")) {
+            // the data isn't measured, so delete it afterwards to keep the next run from appending to it
+            command.add("--cleanup");
+        }
+        // use the same data and queries for every backend
+        command.addAll(Arrays.asList("--synthetic", workload.getProperty("synthetic", "1000000")));
+        command.addAll(Arrays.asList("--synthetic-seed", workload.getProperty("synthetic.seed", "0")));
+        command.addAll(Arrays.asList("--synthetic-skew", workload.getProperty("synthetic.skew", "0.5")));
+        command.addAll(Arrays.asList("--synthetic-days", workload.getProperty("synthetic.days", "1")));
+        command.add("--streaming");
+        if (workload.getProperty("batch.size") != null) {
+            command.addAll(Arrays.asList("--batch-size", workload.getProperty("batch.size")));
+        }
+        command.add("--query-load");
+        command.addAll(Arrays.asList("--query-threads", workload.getProperty("query.threads", "4")));
+        command.addAll(Arrays.asList("--query-rate", workload.getProperty("query.rate", "0")));
+        command.addAll(Arrays.asList("--query-duration", workload.getProperty("query.duration", "60")));
+        command.addAll(Arrays.asList("--query-warmup", workload.getProperty("query.warmup", "10")));
+        command.addAll(Arrays.asList("--report-file", report.toString()));
+
+        System.out.println("Running backend '" + backend + "': " + String.join(" ", command));
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        int exit = process.waitFor();
+        if (exit != 0) {
+            throw new IOException("Backend '" + backend + "' failed with exit code " + exit);
+        } else if (!Files.exists(report)) {
+            throw new IOException("Backend '" + backend + "' did not write a report to " + report);
+        }
+
+        long bytes = dataDir == null ? -1L : size(Paths.get(dataDir));
+        System.out.println("Finished backend '" + backend + "'");
+        System.out.println();
+        return new Result(backend, QuickStartReport.read(report), bytes);
+    }
+
+    private String required(String key) {
+        String value = workload.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing required property '" + key + "'");
+        }
+        return value.trim();
+    }
+
+    private static List<String> split(String args) {
+        List<String> split = new ArrayList<>();
+        for (String arg : args.trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                split.add(arg);
+            }
+        }
+        return split;
+    }
+
+    /**
+     * Total size of the files under a directory
+     */
+    private static long size(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return 0L;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(f -> {
+                try {
+                    return Files.size(f);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        }
+    }
+
+    private static void writeJson(List<Result> results, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("[\n");
+            for (int r = 0; r < results.size(); r++) {
+                Result result = results.get(r);
+                writer.write("  {\n");
+                writer.write("    \"backend\": " + quote(result.backend) + ",\n");
+                writer.write("    \"datastore\": " + quote(result.report.get("datastore")) + ",\n");
+                writer.write("    \"features\": " + result.features() + ",\n");
+                writer.write("    \"ingest_ms\": " + result.ingestMillis() + ",\n");
+                writer.write("    \"features_per_sec\": " + format(result.featuresPerSecond()) + ",\n");
+                writer.write("    \"bytes_on_disk\": " + result.bytes + ",\n");
+                writer.write("    \"queries\": [\n");
+                int queries = result.queries();
+                for (int q = 0; q < queries; q++) {
+                    String prefix = "query." + q + ".";
+                    writer.write("      { \"query\": " + quote(result.report.get(prefix + "name")));
+                    writer.write(", \"count\": " + result.report.get(prefix + "count"));
+                    writer.write(", \"errors\": " + result.report.get(prefix + "errors"));
+                    for (String stat : STATS) {
+                        writer.write(", \"" + stat + "_ms\": " + result.report.get(prefix + stat + ".ms"));
+                    }
+                    writer.write(q < queries - 1 ? " },\n" : " }\n");
+                }
+                writer.write("    ]\n");
+                writer.write(r < results.size() - 1 ? "  },\n" : "  }\n");
+            }
+            writer.write("]\n");
+        }
+    }
+
+    private static void writeCsv(List<Result> results, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("backend,features,ingest_ms,features_per_sec,bytes_on_disk,query,count,errors");
+            for (String stat : STATS) {
+                writer.write("," + stat + "_ms");
+            }
+            writer.write("\n");
+            for (Result result : results) {
+                String common = String.join(",", csv(result.backend), Long.toString(result.features()),
+                                            Long.toString(result.ingestMillis()), format(result.featuresPerSecond()),
+                                            Long.toString(result.bytes));
+                // one row per query, repeating the ingest columns so that each row stands on its own
+                for (int q = 0; q < result.queries(); q++) {
+                    String prefix = "query." + q + ".";
+                    writer.write(common);
+                    writer.write("," + csv(result.report.get(prefix + "name")));
+                    writer.write("," + result.report.get(prefix + "count"));
+                    writer.write("," + result.report.get(prefix + "errors"));
+                    for (String stat : STATS) {
+                        writer.write("," + result.report.get(prefix + stat + ".ms"));
+                    }
+                    writer.write("\n");
+                }
+            }
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.1f", value);
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * The results for a single backend
+     */
+    private static class Result {
+
+        private final String backend;
+        private final QuickStartReport report;
+        private final long bytes;
+
+        Result(String backend, QuickStartReport report, long bytes) {
+            this.backend = backend;
+            this.report = report;
+            this.bytes = bytes;
+        }
+
+        long features() {
+            return Long.parseLong(report.get("ingest.features") == null ? "0" : report.get("ingest.features"));
+        }
+
+        long ingestMillis() {
+            return Long.parseLong(report.get("ingest.millis") == null ? "0" : report.get("ingest.millis"));
+        }
+
+        double featuresPerSecond() {
+            return features() * 1000d / Math.max(1L, ingestMillis());
+        }
+
+        int queries() {
+            return Integer.parseInt(report.get("query.count") == null ? "0" : report.get("query.count"));
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: BenchmarkMatrix <workload.properties>");
+            System.exit(1);
+        }
+        try {
+            Properties workload = new Properties();
+            try (Reader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+                workload.load(reader);
+            }
+            new BenchmarkMatrix(workload).run();
+        } catch (Throwable e) {
+            e.printStackTrace();
+            System.exit(2);
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random access to the bytes of an input file, which allows a file to be split up and read by multiple threads
+ */
+public interface ByteSource extends Closeable {
+
+    /**
+     * Total number of bytes
+     *
+     * @return size
+     */
+    long size();
+
+    /**
+     * Reads bytes starting at the given position. Implementations must allow concurrent reads from multiple threads.
+     *
+     * @param position position to start reading
+     * @param buffer buffer to read into
+     * @param offset offset into the buffer
+     * @param length max number of bytes to read
+     * @return number of bytes read, or -1 if the position is at the end of the input
+     * @throws IOException on error
+     */
+    int read(long position, byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * Opens a file for reading
+     *
+     * @param file file
+     * @return byte source
+     * @throws IOException on error
+     */
+    static ByteSource file(Path file) throws IOException {
+        return new FileByteSource(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * Memory-maps a file for reading
+     *
+     * @param file file
+     * @return byte source
+     * @throws IOException on error
+     */
+    static ByteSource mapped(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping remains valid after the channel is closed
+            return new MappedByteSource(channel);
+        }
+    }
+
+    /**
+     * Reads a url (e.g. a classpath resource) fully into memory. Suitable for small inputs only.
+     *
+     * @param url url
+     * @return byte source
+     * @throws IOException on error
+     */
+    static ByteSource url(URL url) throws IOException {
+        try (InputStream in = url.openStream()) {
+            return new ArrayByteSource(in.readAllBytes());
+        }
+    }
+
+    /**
+     * In-memory bytes
+     */
+    class ArrayByteSource implements ByteSource {
+
+        private final byte[] bytes;
+
+        public ArrayByteSource(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long size() {
+            return bytes.length;
+        }
+
+        @Override
+        public int read(long position, byte[] buffer, int offset, int length) {
+            if (position >= bytes.length) {
+                return -1;
+            }
+            int n = (int) Math.min(length, bytes.length - position);
+            System.arraycopy(bytes, (int) position, buffer, offset, n);
+            return n;
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    /**
+     * File channel, using positional reads so that multiple threads can read at once
+     */
+    class FileByteSource implements ByteSource {
+
+        private final FileChannel channel;
+        private final long size;
+
+        public FileByteSource(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+            return channel.read(ByteBuffer.wrap(buffer, offset, length), position);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Memory-mapped file. Files larger than 2GB are mapped in multiple segments.
+     *
+     * Note that the mapped memory is not released until the buffers are garbage collected.
+     */
+    class MappedByteSource implements ByteSource {
+
+        // size of each mapped segment, which must be less than Integer.MAX_VALUE
+        private static final int SEGMENT_SHIFT = 30;
+        private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+        private final MappedByteBuffer[] segments;
+        private final long size;
+
+        public MappedByteSource(FileChannel channel) throws IOException {
+            this.size = channel.size();
+            int count = (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            this.segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = ((long) i) << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, SEGMENT_MASK + 1));
+            }
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public int read(long position, byte[] buffer, int offset, int length) {
+            if (position >= size) {
+                return -1;
+            }
+            // use a duplicate so that concurrent reads don't interfere with each other's positions
+            ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+            segment.position((int) (position & SEGMENT_MASK));
+            int n = Math.min(length, segment.remaining());
+            segment.get(buffer, offset, n);
+            return n;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
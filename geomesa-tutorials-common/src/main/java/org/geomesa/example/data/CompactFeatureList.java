@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.data;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.util.factory.Hints;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Read-only, column-oriented list of features, for holding large data sets in memory (e.g. for replay).
+ *
+ * Instead of a SimpleFeatureImpl per feature, with boxed attributes, a JTS point and a user data map, each
+ * attribute is stored in a single column: strings are dictionary-encoded, so repeated values such as country
+ * and event codes are only stored once, and numbers, dates and point coordinates are stored as primitives.
+ * Features are only materialized when they are accessed, and each call to get returns a new feature -
+ * changes made to a returned feature are not reflected in the list.
+ */
+public class CompactFeatureList extends AbstractList<SimpleFeature> implements RandomAccess {
+
+    private static final GeometryFactory gf = new GeometryFactory();
+
+    private final SimpleFeatureType sft;
+    private final String[] ids;
+    private final Column[] columns;
+    private final int size;
+
+    private CompactFeatureList(SimpleFeatureType sft, String[] ids, Column[] columns, int size) {
+        this.sft = sft;
+        this.ids = ids;
+        this.columns = columns;
+        this.size = size;
+    }
+
+    /**
+     * Copies features into a compact list
+     *
+     * @param sft simple feature type of the features
+     * @param features features to copy
+     * @return compact list
+     */
+    public static CompactFeatureList copyOf(SimpleFeatureType sft, Iterator<SimpleFeature> features) {
+        Column[] columns = new Column[sft.getAttributeCount()];
+        for (int i = 0; i < columns.length; i++) {
+            Class<?> binding = sft.getDescriptor(i).getType().getBinding();
+            if (String.class.equals(binding)) {
+                columns[i] = new StringColumn();
+            } else if (Integer.class.equals(binding)) {
+                columns[i] = new IntColumn();
+            } else if (Long.class.equals(binding)) {
+                columns[i] = new LongColumn(false);
+            } else if (Date.class.equals(binding)) {
+                columns[i] = new LongColumn(true);
+            } else if (Double.class.equals(binding)) {
+                columns[i] = new DoubleColumn(false);
+            } else if (Float.class.equals(binding)) {
+                columns[i] = new DoubleColumn(true);
+            } else if (Point.class.equals(binding)) {
+                columns[i] = new PointColumn();
+            } else {
+                columns[i] = new ObjectColumn();
+            }
+        }
+        String[] ids = new String[16];
+        int size = 0;
+        while (features.hasNext()) {
+            SimpleFeature feature = features.next();
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size] = feature.getID();
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].add(size, feature.getAttribute(i));
+            }
+            size++;
+        }
+        for (Column column : columns) {
+            column.trim(size);
+        }
+        return new CompactFeatureList(sft, Arrays.copyOf(ids, size), columns, size);
+    }
+
+    /**
+     * Copies features into a compact list
+     *
+     * @param sft simple feature type of the features
+     * @param features features to copy
+     * @return compact list
+     */
+    public static CompactFeatureList copyOf(SimpleFeatureType sft, List<SimpleFeature> features) {
+        return copyOf(sft, features.iterator());
+    }
+
+    public SimpleFeatureType getSimpleFeatureType() {
+        return sft;
+    }
+
+    @Override
+    public SimpleFeature get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].get(index);
+        }
+        SimpleFeature feature = SimpleFeatureBuilder.build(sft, values, ids[index]);
+        // the user data isn't stored, but the loaders always set this hint
+        feature.getUserData().put(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+        return feature;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A single attribute, stored for all features
+     */
+    private interface Column {
+
+        /**
+         * Adds a value, growing the column if needed
+         *
+         * @param index index of the feature
+         * @param value attribute value, may be null
+         */
+        void add(int index, Object value);
+
+        /**
+         * Gets a value
+         *
+         * @param index index of the feature
+         * @return attribute value, may be null
+         */
+        Object get(int index);
+
+        /**
+         * Releases any unused space once all the features have been added
+         *
+         * @param size final number of features
+         */
+        void trim(int size);
+    }
+
+    /**
+     * Strings, as indices into a dictionary of distinct values
+     */
+    private static class StringColumn implements Column {
+
+        private Map<String, Integer> lookup = new HashMap<>();
+        private List<String> dictionary = new ArrayList<>();
+        private String[] values;
+        // -1 indicates null
+        private int[] codes = new int[16];
+
+        @Override
+        public void add(int index, Object value) {
+            if (index == codes.length) {
+                codes = Arrays.copyOf(codes, index * 2);
+            }
+            if (value == null) {
+                codes[index] = -1;
+            } else {
+                codes[index] = lookup.computeIfAbsent((String) value, v -> {
+                    dictionary.add(v);
+                    return dictionary.size() - 1;
+                });
+            }
+        }
+
+        @Override
+        public Object get(int index) {
+            int code = codes[index];
+            return code == -1 ? null : values[code];
+        }
+
+        @Override
+        public void trim(int size) {
+            codes = Arrays.copyOf(codes, size);
+            values = dictionary.toArray(new String[0]);
+            // the lookup is only needed while adding values
+            lookup = null;
+            dictionary = null;
+        }
+    }
+
+    private static class IntColumn implements Column {
+
+        private int[] values = new int[16];
+        private final BitSet nulls = new BitSet();
+
+        @Override
+        public void add(int index, Object value) {
+            if (index == values.length) {
+                values = Arrays.copyOf(values, index * 2);
+            }
+            if (value == null) {
+                nulls.set(index);
+            } else {
+                values[index] = ((Number) value).intValue();
+            }
+        }
+
+        @Override
+        public Object get(int index) {
+            return nulls.get(index) ? null : values[index];
+        }
+
+        @Override
+        public void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Longs, or dates as epoch millis
+     */
+    private static class LongColumn implements Column {
+
+        private final boolean dates;
+        private long[] values = new long[16];
+        private final BitSet nulls = new BitSet();
+
+        LongColumn(boolean dates) {
+            this.dates = dates;
+        }
+
+        @Override
+        public void add(int index, Object value) {
+            if (index == values.length) {
+                values = Arrays.copyOf(values, index * 2);
+            }
+            if (value == null) {
+                nulls.set(index);
+            } else if (dates) {
+                values[index] = ((Date) value).getTime();
+            } else {
+                values[index] = ((Number) value).longValue();
+            }
+        }
+
+        @Override
+        public Object get(int index) {
+            if (nulls.get(index)) {
+                return null;
+            }
+            return dates ? new Date(values[index]) : values[index];
+        }
+
+        @Override
+        public void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Doubles, or floats
+     */
+    private static class DoubleColumn implements Column {
+
+        private final boolean floats;
+        private double[] values = new double[16];
+        private final BitSet nulls = new BitSet();
+
+        DoubleColumn(boolean floats) {
+            this.floats = floats;
+        }
+
+        @Override
+        public void add(int index, Object value) {
+            if (index == values.length) {
+                values = Arrays.copyOf(values, index * 2);
+            }
+            if (value == null) {
+                nulls.set(index);
+            } else {
+                values[index] = ((Number) value).doubleValue();
+            }
+        }
+
+        @Override
+        public Object get(int index) {
+            if (nulls.get(index)) {
+                return null;
+            }
+            return floats ? (Object) (float) values[index] : (Object) values[index];
+        }
+
+        @Override
+        public void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Points, as separate x and y coordinates
+     */
+    private static class PointColumn implements Column {
+
+        private double[] x = new double[16];
+        private double[] y = new double[16];
+        private final BitSet nulls = new BitSet();
+
+        @Override
+        public void add(int index, Object value) {
+            if (index == x.length) {
+                x = Arrays.copyOf(x, index * 2);
+                y = Arrays.copyOf(y, index * 2);
+            }
+            if (value == null) {
+                nulls.set(index);
+            } else {
+                Point point = (Point) value;
+                x[index] = point.getX();
+                y[index] = point.getY();
+            }
+        }
+
+        @Override
+        public Object get(int index) {
+            return nulls.get(index) ? null : gf.createPoint(new Coordinate(x[index], y[index]));
+        }
+
+        @Override
+        public void trim(int size) {
+            x = Arrays.copyOf(x, size);
+            y = Arrays.copyOf(y, size);
+        }
+    }
+
+    /**
+     * Any other type, stored as-is
+     */
+    private static class ObjectColumn implements Column {
+
+        private Object[] values = new Object[16];
+
+        @Override
+        public void add(int index, Object value) {
+            if (index == values.length) {
+                values = Arrays.copyOf(values, index * 2);
+            }
+            values[index] = value;
+        }
+
+        @Override
+        public Object get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.data;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Base class for tutorial data sets that are read from a bundled CSV resource, or from
+ * an external file in the same format
+ */
+public abstract class CsvTutorialData implements TutorialData {
+
+    private List<SimpleFeature> features = null;
+    private Path inputFile = null;
+    private boolean memoryMapped = false;
+    private FeatureSnapshotCache snapshots = null;
+    private boolean compact = false;
+
+    /**
+     * Name of the classpath resource containing the data
+     *
+     * @return resource name
+     */
+    public abstract String getResourceName();
+
+    /**
+     * CSV format used to parse the data
+     *
+     * @return csv format
+     */
+    public abstract CSVFormat getFormat();
+
+    /**
+     * Converts a single CSV record into a simple feature
+     *
+     * @param record csv record
+     * @param builder feature builder, which will be reset after each feature is built
+     * @return the feature, or null if the record is not valid
+     */
+    public abstract SimpleFeature parse(CSVRecord record, SimpleFeatureBuilder builder);
+
+    /**
+     * Creates a decoder that converts a single line of input directly into a simple feature, bypassing
+     * commons-csv and the parse method. Decoders don't need to be thread-safe, as a new one is created
+     * for each parsing pass.
+     *
+     * @return a decoder returning null for invalid lines, or null to parse records through getFormat and parse
+     */
+    public Function<String, SimpleFeature> createLineDecoder() {
+        return null;
+    }
+
+    /**
+     * Read the data from an external file instead of the bundled resource. The file must be in the same
+     * format as the bundled resource.
+     *
+     * @param file input file, or null to use the bundled resource
+     * @param memoryMapped read the file through a memory mapping instead of a buffered reader
+     */
+    public void setInputFile(Path file, boolean memoryMapped) {
+        this.inputFile = file;
+        this.memoryMapped = memoryMapped;
+        this.features = null;
+    }
+
+    /**
+     * External input file, if set
+     *
+     * @return the input file, or null if using the bundled resource
+     */
+    public Path getInputFile() {
+        return inputFile;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * Cache parsed features on disk. If a snapshot of the input exists, it will be read instead of parsing
+     * the input, otherwise one will be written the first time the test data is loaded, or streamed to the end.
+     *
+     * @param snapshots snapshot cache, or null to always parse the input
+     */
+    public void setSnapshotCache(FeatureSnapshotCache snapshots) {
+        this.snapshots = snapshots;
+        this.features = null;
+    }
+
+    public FeatureSnapshotCache getSnapshotCache() {
+        return snapshots;
+    }
+
+    /**
+     * Hold the loaded test data in a CompactFeatureList, instead of a list of regular features. This reduces
+     * memory use when the data is kept around, at the cost of creating a new feature on each access.
+     *
+     * @param compact use a compact list
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+        this.features = null;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    @Override
+    public List<SimpleFeature> getTestData() {
+        if (features == null) {
+            if (snapshots == null) {
+                features = collect(parseTestData());
+            } else {
+                try {
+                    Path snapshot = snapshots.getSnapshotFile(this);
+                    if (Files.isRegularFile(snapshot)) {
+                        features = collect(FeatureSnapshotCache.read(snapshot));
+                    } else {
+                        features = collect(parseTestData());
+                        FeatureSnapshotCache.write(snapshot, getSimpleFeatureType(), features);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error reading snapshot of " + getInputName() + ":", e);
+                }
+            }
+        }
+        return features;
+    }
+
+    @Override
+    public Stream<SimpleFeature> streamTestData() {
+        if (snapshots != null) {
+            try {
+                Path snapshot = snapshots.getSnapshotFile(this);
+                if (Files.isRegularFile(snapshot)) {
+                    return FeatureSnapshotCache.read(snapshot);
+                }
+                return FeatureSnapshotCache.writeThrough(snapshot, getSimpleFeatureType(), parseTestData());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading snapshot of " + getInputName() + ":", e);
+            }
+        }
+        return parseTestData();
+    }
+
+    /**
+     * Parses the input, ignoring any snapshots
+     *
+     * @return stream of features, which must be closed after use
+     */
+    public Stream<SimpleFeature> parseTestData() {
+        Function<String, SimpleFeature> decoder = createLineDecoder();
+        if (decoder != null) {
+            return decodeTestData(decoder);
+        }
+
+        // use apache commons-csv to parse the file one record at a time
+        CSVParser parser;
+        try {
+            if (inputFile == null) {
+                URL input = getClass().getClassLoader().getResource(getResourceName());
+                if (input == null) {
+                    throw new RuntimeException("Couldn't load resource " + getResourceName());
+                }
+                parser = CSVParser.parse(input, StandardCharsets.UTF_8, getFormat());
+            } else if (memoryMapped) {
+                parser = CSVParser.parse(new MappedFileReader(inputFile), getFormat());
+            } else {
+                parser = CSVParser.parse(Files.newBufferedReader(inputFile, StandardCharsets.UTF_8), getFormat());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading " + getInputName() + ":", e);
+        }
+
+        // use a geotools SimpleFeatureBuilder to create our features
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(getSimpleFeatureType());
+
+        return StreamSupport.stream(parser.spliterator(), false)
+                            .map(record -> parse(record, builder))
+                            .filter(Objects::nonNull)
+                            .onClose(() -> {
+                                try {
+                                    parser.close();
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException("Error closing " + getInputName() + ":", e);
+                                }
+                            });
+    }
+
+    /**
+     * Parses the input one line at a time with a line decoder
+     *
+     * @param decoder line decoder
+     * @return stream of features, which must be closed after use
+     */
+    private Stream<SimpleFeature> decodeTestData(Function<String, SimpleFeature> decoder) {
+        BufferedReader reader;
+        try {
+            if (inputFile == null) {
+                URL input = getClass().getClassLoader().getResource(getResourceName());
+                if (input == null) {
+                    throw new RuntimeException("Couldn't load resource " + getResourceName());
+                }
+                reader = new BufferedReader(new InputStreamReader(input.openStream(), StandardCharsets.UTF_8));
+            } else if (memoryMapped) {
+                reader = new BufferedReader(new MappedFileReader(inputFile));
+            } else {
+                reader = Files.newBufferedReader(inputFile, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading " + getInputName() + ":", e);
+        }
+
+        return reader.lines()
+                     .map(decoder)
+                     .filter(Objects::nonNull)
+                     .onClose(() -> {
+                         try {
+                             reader.close();
+                         } catch (IOException e) {
+                             throw new UncheckedIOException("Error closing " + getInputName() + ":", e);
+                         }
+                     });
+    }
+
+    private List<SimpleFeature> collect(Stream<SimpleFeature> stream) {
+        // use try-with-resources to ensure the stream is closed
+        try (Stream<SimpleFeature> features = stream) {
+            if (compact) {
+                return CompactFeatureList.copyOf(getSimpleFeatureType(), features.iterator());
+            }
+            return Collections.unmodifiableList(features.collect(Collectors.toList()));
+        }
+    }
+
+    private String getInputName() {
+        return inputFile == null ? getResourceName() : inputFile.toString();
+    }
+}
@@ -9,7 +9,6 @@
 package org.geomesa.example.data;
 
 import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.geotools.api.data.Query;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
@@ -19,19 +18,15 @@ import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.api.feature.simple.SimpleFeatureType;
 import org.geotools.api.filter.Filter;
 
-import java.io.IOException;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
-public class CvilleRICData implements TutorialData {
+public class CvilleRICData extends CsvTutorialData {
 
     private SimpleFeatureType sft = null;
-    private List<SimpleFeature> features = null;
     private List<Query> queries = null;
     private Filter subsetFilter = null;
 
@@ -62,48 +57,38 @@ public class CvilleRICData implements TutorialData {
     }
 
     @Override
-    public List<SimpleFeature> getTestData() {
-        if (features == null) {
-            List<SimpleFeature> features = new ArrayList<>();
-
-            // read the bundled t-drive CSV
-            URL input = getClass().getClassLoader().getResource("cville-ric.txt");
-            if (input == null) {
-                throw new RuntimeException("Couldn't load resource cville-ric.txt");
-            }
-
-            // use a geotools SimpleFeatureBuilder to create our features
-            SimpleFeatureBuilder builder = new SimpleFeatureBuilder(getSimpleFeatureType());
-
-            try (CSVParser parser = CSVParser.parse(input, StandardCharsets.UTF_8, CSVFormat.DEFAULT)) {
-                for (CSVRecord record : parser) {
-                    // use apache commons-csv to parse the file
-                    // pull out the fields corresponding to our simple feature attributes
-                    builder.set("entityId", record.get(0));
-
-                    // some dates are converted implicitly, so we can set them as strings
-                    // however, the date format here isn't one that is converted, so we parse it into a java.util.Date
-                    builder.set("dtg", Date.from(Instant.ofEpochMilli(Long.parseLong(record.get(1)))));
-
-                    // we can use WKT (well-known-text) to represent geometries
-                    // note that we use longitude first ordering
-                    double longitude = Double.parseDouble(record.get(2));
-                    double latitude = Double.parseDouble(record.get(3));
-                    builder.set("geom", "POINT (" + longitude + " " + latitude + ")");
-
-                    // be sure to tell GeoTools explicitly that we want to use the ID we provided
-                     builder.featureUserData(Hints.USE_PROVIDED_FID, Boolean.TRUE);
-
-                    // build the feature - this also resets the feature builder for the next entry
-                    // use the taxi ID as the feature ID
-                    features.add(builder.buildFeature(record.get(0)));
-                }
-            } catch (IOException e) {
-                throw new RuntimeException("Error reading cville-ric data:", e);
-            }
-            this.features = Collections.unmodifiableList(features);
-        }
-        return features;
+    public String getResourceName() {
+        // the bundled cville-ric CSV
+        return "cville-ric.txt";
+    }
+
+    @Override
+    public CSVFormat getFormat() {
+        return CSVFormat.DEFAULT;
+    }
+
+    @Override
+    public SimpleFeature parse(CSVRecord record, SimpleFeatureBuilder builder) {
+        // use apache commons-csv to parse the file
+        // pull out the fields corresponding to our simple feature attributes
+        builder.set("entityId", record.get(0));
+
+        // some dates are converted implicitly, so we can set them as strings
+        // however, the date format here isn't one that is converted, so we parse it into a java.util.Date
+        builder.set("dtg", Date.from(Instant.ofEpochMilli(Long.parseLong(record.get(1)))));
+
+        // we can use WKT (well-known-text) to represent geometries
+        // note that we use longitude first ordering
+        double longitude = Double.parseDouble(record.get(2));
+        double latitude = Double.parseDouble(record.get(3));
+        builder.set("geom", "POINT (" + longitude + " " + latitude + ")");
+
+        // be sure to tell GeoTools explicitly that we want to use the ID we provided
+         builder.featureUserData(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+
+        // build the feature - this also resets the feature builder for the next entry
+        // use the entity ID as the feature ID
+        return builder.buildFeature(record.get(0));
     }
 
     @Override
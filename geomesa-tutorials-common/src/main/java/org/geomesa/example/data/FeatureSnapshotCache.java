@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.data;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.DataUtilities;
+import org.geotools.util.factory.Hints;
+import org.locationtech.geomesa.features.avro.io.AvroDataFileReader;
+import org.locationtech.geomesa.features.avro.io.AvroDataFileWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+/**
+ * On-disk cache of parsed tutorial data, stored in GeoMesa's Avro feature serialization. Reading a snapshot
+ * avoids re-parsing the CSV input and rebuilding every feature through a SimpleFeatureBuilder.
+ *
+ * Snapshots are keyed by the input name and a checksum of the feature type and the input. For the bundled
+ * resources, the checksum covers the input bytes. For external input files, which may be large, it covers the
+ * path, size and last-modified time of the file instead, so that finding a snapshot doesn't require reading
+ * the whole input. Either way, a snapshot is not used if the input or schema has changed since it was written.
+ */
+public class FeatureSnapshotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeatureSnapshotCache.class);
+
+    private final Path dir;
+
+    /**
+     * @param dir directory used to store snapshots, which will be created if it doesn't exist
+     */
+    public FeatureSnapshotCache(Path dir) {
+        this.dir = dir;
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Gets the snapshot file for a data set. The file may not exist yet.
+     *
+     * @param data data set
+     * @return snapshot file
+     * @throws IOException if the input can't be read to compute its checksum
+     */
+    public Path getSnapshotFile(CsvTutorialData data) throws IOException {
+        CRC32C checksum = new CRC32C();
+        // include the schema so that a change in the feature type invalidates the snapshot
+        SimpleFeatureType sft = data.getSimpleFeatureType();
+        checksum.update((sft.getTypeName() + ";" + DataUtilities.encodeType(sft)).getBytes(StandardCharsets.UTF_8));
+        String name;
+        if (data.getInputFile() == null) {
+            name = data.getResourceName();
+            URL input = data.getClass().getClassLoader().getResource(name);
+            if (input == null) {
+                throw new IOException("Couldn't load resource " + name);
+            }
+            try (InputStream in = input.openStream()) {
+                byte[] buffer = new byte[65536];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    checksum.update(buffer, 0, read);
+                }
+            }
+        } else {
+            Path file = data.getInputFile().toAbsolutePath();
+            name = file.getFileName().toString();
+            // reading an external file could cost as much as parsing it, so use its attributes instead
+            String key = ";" + file + ";" + Files.size(file) + ";" + Files.getLastModifiedTime(file).toMillis();
+            checksum.update(key.getBytes(StandardCharsets.UTF_8));
+        }
+        return dir.resolve(name.replaceAll("[^A-Za-z0-9._-]", "_") + "." + Long.toHexString(checksum.getValue()) + ".avro");
+    }
+
+    /**
+     * Checks if a snapshot exists for a data set
+     *
+     * @param data data set
+     * @return true if a snapshot exists
+     * @throws IOException if the input can't be read
+     */
+    public boolean exists(CsvTutorialData data) throws IOException {
+        return Files.isRegularFile(getSnapshotFile(data));
+    }
+
+    /**
+     * Writes a snapshot of the data set
+     *
+     * @param data data set
+     * @param features parsed features
+     * @return snapshot file
+     * @throws IOException on error
+     */
+    public Path write(CsvTutorialData data, List<SimpleFeature> features) throws IOException {
+        Path file = getSnapshotFile(data);
+        write(file, data.getSimpleFeatureType(), features);
+        return file;
+    }
+
+    /**
+     * Writes a snapshot file
+     *
+     * @param file snapshot file, as returned by getSnapshotFile
+     * @param sft simple feature type
+     * @param features parsed features
+     * @throws IOException on error
+     */
+    public static void write(Path file, SimpleFeatureType sft, List<SimpleFeature> features) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        // write to a temp file and move it into place, so that a partial snapshot is never read
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp));
+                 AvroDataFileWriter writer =
+                       new AvroDataFileWriter(out, sft, Deflater.NO_COMPRESSION)) {
+                for (SimpleFeature feature : features) {
+                    writer.append(feature);
+                }
+                writer.flush();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        logger.debug("Wrote snapshot {} with {} features", file, features.size());
+    }
+
+    /**
+     * Writes a snapshot file from features as they are streamed. The snapshot is only kept if the returned
+     * stream is read to the end before it is closed, so a partially consumed stream never leaves behind an
+     * incomplete snapshot.
+     *
+     * @param file snapshot file, as returned by getSnapshotFile
+     * @param sft simple feature type
+     * @param features parsed features, which will be closed when the returned stream is closed
+     * @return stream of the same features, which must be closed after use
+     * @throws IOException on error
+     */
+    public static Stream<SimpleFeature> writeThrough(Path file, SimpleFeatureType sft, Stream<SimpleFeature> features)
+          throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        AvroDataFileWriter writer;
+        try {
+            writer = new AvroDataFileWriter(new BufferedOutputStream(Files.newOutputStream(tmp)), sft,
+                                            Deflater.NO_COMPRESSION);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            features.close();
+            throw e;
+        }
+        Closeable closeable = writer;
+        Iterator<SimpleFeature> iterator = features.iterator();
+        // only accessed from the thread consuming the stream
+        long[] count = new long[] { 0L };
+        boolean[] complete = new boolean[] { false };
+        Iterator<SimpleFeature> tee = new Iterator<SimpleFeature>() {
+            @Override
+            public boolean hasNext() {
+                boolean hasNext = iterator.hasNext();
+                if (!hasNext) {
+                    complete[0] = true;
+                }
+                return hasNext;
+            }
+
+            @Override
+            public SimpleFeature next() {
+                SimpleFeature feature = iterator.next();
+                writer.append(feature);
+                count[0]++;
+                return feature;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(tee, Spliterator.ORDERED), false)
+                            .onClose(() -> {
+                                try {
+                                    try {
+                                        closeable.close();
+                                    } finally {
+                                        features.close();
+                                    }
+                                    if (complete[0]) {
+                                        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                                                   StandardCopyOption.ATOMIC_MOVE);
+                                        logger.debug("Wrote snapshot {} with {} features", file, count[0]);
+                                    }
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException("Error writing snapshot " + file + ":", e);
+                                } finally {
+                                    try {
+                                        Files.deleteIfExists(tmp);
+                                    } catch (IOException e) {
+                                        logger.warn("Error deleting temporary file {}: {}", tmp, e.toString());
+                                    }
+                                }
+                            });
+    }
+
+    /**
+     * Reads a snapshot of the data set. The snapshot must exist.
+     *
+     * @param data data set
+     * @return stream of features, which must be closed after use
+     * @throws IOException on error
+     */
+    public Stream<SimpleFeature> read(CsvTutorialData data) throws IOException {
+        return read(getSnapshotFile(data));
+    }
+
+    /**
+     * Reads a snapshot file
+     *
+     * @param file snapshot file
+     * @return stream of features, which must be closed after use
+     * @throws IOException on error
+     */
+    public static Stream<SimpleFeature> read(Path file) throws IOException {
+        // the avro file is self-describing, so we don't need to pass in the feature type
+        AvroDataFileReader reader = new AvroDataFileReader(new BufferedInputStream(Files.newInputStream(file)));
+        Closeable closeable = reader;
+        Iterator<SimpleFeature> iterator = new Iterator<SimpleFeature>() {
+            @Override
+            public boolean hasNext() {
+                return reader.hasNext();
+            }
+
+            @Override
+            public SimpleFeature next() {
+                SimpleFeature feature = reader.next();
+                // the feature IDs are serialized, but the hint to use them isn't
+                feature.getUserData().put(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+                return feature;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                            .onClose(() -> {
+                                try {
+                                    closeable.close();
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException("Error closing snapshot " + file + ":", e);
+                                }
+                            });
+    }
+}
@@ -9,7 +9,6 @@
 package org.geomesa.example.data;
 
 import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.geotools.api.data.Query;
 import org.geotools.factory.CommonFactoryFinder;
@@ -25,9 +24,6 @@ import org.geotools.api.filter.FilterFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
@@ -37,13 +33,16 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Function;
 
-public class GDELTData implements TutorialData {
+public class GDELTData extends CsvTutorialData {
 
     private static final Logger logger = LoggerFactory.getLogger(GDELTData.class);
 
+    // date parser corresponding to the CSV format
+    private static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.US);
+
     private SimpleFeatureType sft = null;
-    private List<SimpleFeature> features = null;
     private List<Query> queries = null;
     private Filter subsetFilter = null;
 
@@ -85,73 +84,65 @@ public class GDELTData implements TutorialData {
     }
 
     @Override
-    public List<SimpleFeature> getTestData() {
-        if (features == null) {
-            List<SimpleFeature> features = new ArrayList<>();
-
-            // read the bundled GDELT 2.0 TSV
-            URL input = getClass().getClassLoader().getResource("20180101000000.export.CSV");
-            if (input == null) {
-                throw new RuntimeException("Couldn't load resource 20180101000000.export.CSV");
-            }
+    public String getResourceName() {
+        // the bundled GDELT 2.0 TSV
+        return "20180101000000.export.CSV";
+    }
 
-            // date parser corresponding to the CSV format
-            DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.US);
-
-            // use a geotools SimpleFeatureBuilder to create our features
-            SimpleFeatureBuilder builder = new SimpleFeatureBuilder(getSimpleFeatureType());
-
-            // use apache commons-csv to parse the GDELT file
-            try (CSVParser parser = CSVParser.parse(input, StandardCharsets.UTF_8, CSVFormat.TDF)) {
-                for (CSVRecord record : parser) {
-                    try {
-                        // pull out the fields corresponding to our simple feature attributes
-                        builder.set("GLOBALEVENTID", record.get(0));
-
-                        // some dates are converted implicitly, so we can set them as strings
-                        // however, the date format here isn't one that is converted, so we parse it into a java.util.Date
-                        builder.set("dtg",
-                            Date.from(LocalDate.parse(record.get(1), dateFormat).atStartOfDay(ZoneOffset.UTC).toInstant()));
-
-                        builder.set("Actor1Name", record.get(6));
-                        builder.set("Actor1CountryCode", record.get(7));
-                        builder.set("Actor2Name", record.get(16));
-                        builder.set("Actor2CountryCode", record.get(17));
-                        builder.set("EventCode", record.get(26));
-
-                        // we can also explicitly convert to the appropriate type
-                        builder.set("NumMentions", Integer.valueOf(record.get(31)));
-                        builder.set("NumSources", Integer.valueOf(record.get(32)));
-                        builder.set("NumArticles", Integer.valueOf(record.get(33)));
-
-                        builder.set("ActionGeo_Type", record.get(51));
-                        builder.set("ActionGeo_FullName", record.get(52));
-                        builder.set("ActionGeo_CountryCode", record.get(53));
-
-                        // we can use WKT (well-known-text) to represent geometries
-                        // note that we use longitude first ordering
-                        double latitude = Double.parseDouble(record.get(56));
-                        double longitude = Double.parseDouble(record.get(57));
-                        builder.set("geom", "POINT (" + longitude + " " + latitude + ")");
-
-                        // be sure to tell GeoTools explicitly that we want to use the ID we provided
-                        builder.featureUserData(Hints.USE_PROVIDED_FID, java.lang.Boolean.TRUE);
-
-                        // build the feature - this also resets the feature builder for the next entry
-                        // use the GLOBALEVENTID as the feature ID
-                        SimpleFeature feature = builder.buildFeature(record.get(0));
-
-                        features.add(feature);
-                    } catch (Exception e) {
-                        logger.debug("Invalid GDELT record: " + e.toString() + " " + record.toString());
-                    }
-                }
-            } catch (IOException e) {
-                throw new RuntimeException("Error reading GDELT data:", e);
-            }
-            this.features = Collections.unmodifiableList(features);
+    @Override
+    public CSVFormat getFormat() {
+        return CSVFormat.TDF;
+    }
+
+    @Override
+    public Function<String, SimpleFeature> createLineDecoder() {
+        // the GDELT export is simple tab-delimited text, so it can be decoded without commons-csv
+        // see GDELTDecoder, which creates the same features as the parse method below
+        return new GDELTDecoder(getSimpleFeatureType())::decode;
+    }
+
+    @Override
+    public SimpleFeature parse(CSVRecord record, SimpleFeatureBuilder builder) {
+        try {
+            // pull out the fields corresponding to our simple feature attributes
+            builder.set("GLOBALEVENTID", record.get(0));
+
+            // some dates are converted implicitly, so we can set them as strings
+            // however, the date format here isn't one that is converted, so we parse it into a java.util.Date
+            builder.set("dtg",
+                Date.from(LocalDate.parse(record.get(1), dateFormat).atStartOfDay(ZoneOffset.UTC).toInstant()));
+
+            builder.set("Actor1Name", record.get(6));
+            builder.set("Actor1CountryCode", record.get(7));
+            builder.set("Actor2Name", record.get(16));
+            builder.set("Actor2CountryCode", record.get(17));
+            builder.set("EventCode", record.get(26));
+
+            // we can also explicitly convert to the appropriate type
+            builder.set("NumMentions", Integer.valueOf(record.get(31)));
+            builder.set("NumSources", Integer.valueOf(record.get(32)));
+            builder.set("NumArticles", Integer.valueOf(record.get(33)));
+
+            builder.set("ActionGeo_Type", record.get(51));
+            builder.set("ActionGeo_FullName", record.get(52));
+            builder.set("ActionGeo_CountryCode", record.get(53));
+
+            // we can use WKT (well-known-text) to represent geometries
+            // note that we use longitude first ordering
+            double latitude = Double.parseDouble(record.get(56));
+            double longitude = Double.parseDouble(record.get(57));
+            builder.set("geom", "POINT (" + longitude + " " + latitude + ")");
+
+            // be sure to tell GeoTools explicitly that we want to use the ID we provided
+            builder.featureUserData(Hints.USE_PROVIDED_FID, java.lang.Boolean.TRUE);
+
+            // build the feature - this also resets the feature builder for the next entry
+            // use the GLOBALEVENTID as the feature ID
+            return builder.buildFeature(record.get(0));
+        } catch (Exception e) {
+            logger.debug("Invalid GDELT record: " + e.toString() + " " + record.toString());
+            return null;
         }
-        return features;
     }
 
     @Override
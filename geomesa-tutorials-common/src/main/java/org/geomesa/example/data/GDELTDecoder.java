@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.data;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.util.factory.Hints;
+import org.locationtech.geomesa.features.ScalaSimpleFeature;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Decodes lines from a GDELT 2.0 export file into simple features, as an alternative to the
+ * commons-csv based parsing in GDELTData.
+ *
+ * Each line is scanned once for tab delimiters, and only the columns used by the schema are read.
+ * Points are created directly instead of through WKT, numbers are parsed without intermediate strings,
+ * and dates are cached by day. Features are built as GeoMesa ScalaSimpleFeatures, which avoids the
+ * type conversion done by SimpleFeatureBuilder.
+ *
+ * Values are read the same way as with CSVFormat.TDF - surrounding whitespace is trimmed, and numbers
+ * are validated the same as Integer.valueOf. GDELT exports are not quoted, so lines with a quoted column
+ * fall back to commons-csv. Quoted values that span multiple lines are not supported.
+ *
+ * Instances are not thread-safe - use one decoder per thread.
+ */
+public class GDELTDecoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(GDELTDecoder.class);
+
+    private static final GeometryFactory gf = new GeometryFactory();
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    // date parser corresponding to the one in GDELTData
+    private static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.US);
+
+    // index of the last column we need to read
+    private static final int LAST_COLUMN = 57;
+
+    private final SimpleFeatureType sft;
+
+    // index of each attribute in the feature type, or -1 if the attribute is not in the feature type
+    private final int id;
+    private final int dtg;
+    private final int actor1Name;
+    private final int actor1CountryCode;
+    private final int actor2Name;
+    private final int actor2CountryCode;
+    private final int eventCode;
+    private final int numMentions;
+    private final int numSources;
+    private final int numArticles;
+    private final int actionGeoType;
+    private final int actionGeoFullName;
+    private final int actionGeoCountryCode;
+    private final int geom;
+
+    // start and end offsets of each column in the current line, re-used between lines
+    private final int[] starts = new int[LAST_COLUMN + 1];
+    private final int[] ends = new int[LAST_COLUMN + 1];
+
+    // whether the current line has a quoted column, and a buffer for the unquoted values if so
+    private boolean quoted = false;
+    private final StringBuilder unquoted = new StringBuilder();
+
+    // cache of yyyyMMdd values to epoch millis - an export file generally only covers a few days
+    private final Map<Integer, Long> days = new HashMap<>();
+    private int lastDay = -1;
+    private long lastDayMillis = 0L;
+
+    public GDELTDecoder() {
+        this(new GDELTData().getSimpleFeatureType());
+    }
+
+    /**
+     * Create a decoder for a GDELT feature type. Any attributes of the standard GDELT
+     * schema that are not present in the feature type will not be read.
+     *
+     * @param sft simple feature type, generally from GDELTData
+     */
+    public GDELTDecoder(SimpleFeatureType sft) {
+        this.sft = sft;
+        this.id = sft.indexOf("GLOBALEVENTID");
+        this.dtg = sft.indexOf("dtg");
+        this.actor1Name = sft.indexOf("Actor1Name");
+        this.actor1CountryCode = sft.indexOf("Actor1CountryCode");
+        this.actor2Name = sft.indexOf("Actor2Name");
+        this.actor2CountryCode = sft.indexOf("Actor2CountryCode");
+        this.eventCode = sft.indexOf("EventCode");
+        this.numMentions = sft.indexOf("NumMentions");
+        this.numSources = sft.indexOf("NumSources");
+        this.numArticles = sft.indexOf("NumArticles");
+        this.actionGeoType = sft.indexOf("ActionGeo_Type");
+        this.actionGeoFullName = sft.indexOf("ActionGeo_FullName");
+        this.actionGeoCountryCode = sft.indexOf("ActionGeo_CountryCode");
+        this.geom = sft.indexOf("geom");
+    }
+
+    public SimpleFeatureType getSimpleFeatureType() {
+        return sft;
+    }
+
+    /**
+     * Decodes all the lines from a reader. The reader is not closed by this method.
+     *
+     * @param reader reader
+     * @return stream of features, skipping any invalid lines
+     */
+    public Stream<SimpleFeature> decode(BufferedReader reader) {
+        return reader.lines().map(this::decode).filter(Objects::nonNull);
+    }
+
+    /**
+     * Decodes a single line of a GDELT export file
+     *
+     * @param line tab-delimited line, without the line terminator
+     * @return the feature, or null if the line is not valid
+     */
+    public SimpleFeature decode(CharSequence line) {
+        try {
+            if (!split(line)) {
+                logger.debug("Invalid GDELT record, not enough columns: " + line);
+                return null;
+            }
+            if (quoted) {
+                line = unquote(line);
+                if (line == null) {
+                    return null;
+                }
+            }
+
+            Object[] values = new Object[sft.getAttributeCount()];
+
+            // these are the same columns used by GDELTData
+            String fid = string(line, 0);
+            if (id != -1) {
+                values[id] = fid;
+            }
+            if (dtg != -1) {
+                values[dtg] = new Date(date(line, 1));
+            }
+            setString(values, actor1Name, line, 6);
+            setString(values, actor1CountryCode, line, 7);
+            setString(values, actor2Name, line, 16);
+            setString(values, actor2CountryCode, line, 17);
+            setString(values, eventCode, line, 26);
+            if (numMentions != -1) {
+                values[numMentions] = parseInt(line, 31);
+            }
+            if (numSources != -1) {
+                values[numSources] = parseInt(line, 32);
+            }
+            if (numArticles != -1) {
+                values[numArticles] = parseInt(line, 33);
+            }
+            if (actionGeoType != -1 && starts[51] < ends[51]) {
+                // an empty geo type is left as null, the same as the feature builder conversion
+                values[actionGeoType] = parseInt(line, 51);
+            }
+            setString(values, actionGeoFullName, line, 52);
+            setString(values, actionGeoCountryCode, line, 53);
+
+            // note that we use longitude first ordering
+            double latitude = Double.parseDouble(string(line, 56));
+            double longitude = Double.parseDouble(string(line, 57));
+            if (geom != -1) {
+                values[geom] = gf.createPoint(new Coordinate(longitude, latitude));
+            }
+
+            ScalaSimpleFeature feature = new ScalaSimpleFeature(sft, fid, values, null);
+            // be sure to tell GeoTools explicitly that we want to use the ID we provided
+            feature.getUserData().put(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+            return feature;
+        } catch (Exception e) {
+            logger.debug("Invalid GDELT record: " + e.toString() + " " + line);
+            return null;
+        }
+    }
+
+    /**
+     * Finds the start and end of each column we need in the line
+     *
+     * @param line line
+     * @return true if the line had enough columns
+     */
+    private boolean split(CharSequence line) {
+        quoted = false;
+        int length = line.length();
+        int column = 0;
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(i) == '\t') {
+                column(line, column, start, i);
+                if (++column > LAST_COLUMN) {
+                    return true;
+                }
+                start = i + 1;
+            }
+        }
+        if (column == LAST_COLUMN) {
+            column(line, column, start, length);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the offsets of a column, ignoring surrounding whitespace the same as CSVFormat.TDF
+     */
+    private void column(CharSequence line, int column, int start, int end) {
+        while (start < end && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        if (start < end && line.charAt(start) == '"') {
+            quoted = true;
+        }
+        starts[column] = start;
+        ends[column] = end;
+    }
+
+    /**
+     * Parses a line with quoted columns through commons-csv, and copies the values we need into a buffer,
+     * updating the column offsets to match
+     *
+     * @param line line
+     * @return the buffer, or null if the line is not a single valid record
+     */
+    private CharSequence unquote(CharSequence line) throws IOException {
+        try (CSVParser parser = CSVParser.parse(line.toString(), CSVFormat.TDF)) {
+            List<CSVRecord> records = parser.getRecords();
+            if (records.size() != 1 || records.get(0).size() <= LAST_COLUMN) {
+                logger.debug("Invalid GDELT record, not enough columns: " + line);
+                return null;
+            }
+            CSVRecord record = records.get(0);
+            unquoted.setLength(0);
+            for (int column = 0; column <= LAST_COLUMN; column++) {
+                starts[column] = unquoted.length();
+                unquoted.append(record.get(column));
+                ends[column] = unquoted.length();
+            }
+            return unquoted;
+        }
+    }
+
+    private String string(CharSequence line, int column) {
+        return line.subSequence(starts[column], ends[column]).toString();
+    }
+
+    /**
+     * Parses an integer, accepting the same values as Integer.valueOf (which is used by GDELTData)
+     */
+    private int parseInt(CharSequence line, int column) {
+        int start = starts[column];
+        int end = ends[column];
+        if (start == end) {
+            throw new NumberFormatException("Empty value in column " + column);
+        }
+        char first = line.charAt(start);
+        boolean negative = first == '-';
+        if (negative || first == '+') {
+            if (++start == end) {
+                throw new NumberFormatException("Invalid number: " + string(line, column));
+            }
+        }
+        // accumulate negatively, as the negative range is larger than the positive one
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int multiplyLimit = limit / 10;
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(line.charAt(i), 10);
+            if (digit < 0 || value < multiplyLimit) {
+                throw new NumberFormatException("Invalid number: " + string(line, column));
+            }
+            value *= 10;
+            if (value < limit + digit) {
+                throw new NumberFormatException("Invalid number: " + string(line, column));
+            }
+            value -= digit;
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * Parses a yyyyMMdd date into epoch millis, at the start of the day in UTC
+     */
+    private long date(CharSequence line, int column) {
+        int start = starts[column];
+        int end = ends[column];
+        if (end - start != 8) {
+            throw new IllegalArgumentException("Invalid date: " + string(line, column));
+        }
+        // the date formatter only accepts ascii digits, so we can use them as the cache key
+        int yyyyMMdd = 0;
+        for (int i = start; i < end; i++) {
+            yyyyMMdd = yyyyMMdd * 10 + digit(line.charAt(i));
+        }
+        if (yyyyMMdd != lastDay) {
+            Long millis = days.get(yyyyMMdd);
+            if (millis == null) {
+                // parse with the same formatter as GDELTData, so that the same dates are accepted
+                LocalDate date = LocalDate.parse(string(line, column), dateFormat);
+                millis = date.toEpochDay() * MILLIS_PER_DAY;
+                days.put(yyyyMMdd, millis);
+            }
+            lastDay = yyyyMMdd;
+            lastDayMillis = millis;
+        }
+        return lastDayMillis;
+    }
+
+    private static int digit(char c) {
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Invalid digit: " + c);
+        }
+        return c - '0';
+    }
+
+    private void setString(Object[] values, int index, CharSequence line, int column) {
+        if (index != -1) {
+            values[index] = string(line, column);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.data;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a UTF-8 text file through a memory mapping. Characters are decoded directly out of the mapped
+ * buffer, instead of being copied into heap buffers through read calls first.
+ *
+ * Large files are mapped one segment at a time, so files larger than 2GB are supported.
+ */
+public class MappedFileReader extends Reader {
+
+    // max size of each mapped segment
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder;
+    // holds the second half of a surrogate pair that didn't fit in the caller's buffer
+    private final CharBuffer pending = CharBuffer.allocate(2);
+
+    private long segmentStart = 0L;
+    private MappedByteBuffer segment;
+    private boolean flushed = false;
+
+    public MappedFileReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            this.segment = map(0L);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                                             .onMalformedInput(CodingErrorAction.REPLACE)
+                                             .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.pending.flip();
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (segment == null) {
+            throw new IOException("Reader is closed");
+        } else if (length == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+        if (pending.hasRemaining()) {
+            out.put(pending.get());
+            return 1;
+        }
+        while (out.position() == offset) {
+            boolean last = segmentStart + segment.limit() >= size;
+            if (last && flushed) {
+                return -1;
+            }
+            CoderResult result = decoder.decode(segment, out, last);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (out.position() == offset) {
+                if (result.isOverflow()) {
+                    // the next character is a surrogate pair, which doesn't fit in a single char buffer -
+                    // decode it separately and return one half at a time
+                    pending.clear();
+                    result = decoder.decode(segment, pending, last);
+                    if (result.isError()) {
+                        result.throwException();
+                    }
+                    pending.flip();
+                    if (pending.hasRemaining()) {
+                        out.put(pending.get());
+                    }
+                } else if (last) {
+                    decoder.flush(out);
+                    flushed = true;
+                } else {
+                    // we've reached the end of the segment - any bytes left over are part of a
+                    // multi-byte character that spans segments, so start the next mapping from there
+                    segmentStart += segment.position();
+                    segment = map(segmentStart);
+                }
+            }
+        }
+        return out.position() - offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // note: the mapped memory is not released until the buffer is garbage collected
+        segment = null;
+        channel.close();
+    }
+
+    private MappedByteBuffer map(long start) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_BYTES, size - start));
+    }
+}
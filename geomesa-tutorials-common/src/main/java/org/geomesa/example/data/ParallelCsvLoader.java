@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.data;
+
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Parses a CSV data set in parallel. The input is split into chunks on line boundaries, and the chunks
+ * are parsed by the data set's line decoder, or its regular record parser, on a fork/join pool.
+ *
+ * Records may not span lines (i.e. quoted values can't contain line breaks), which holds for all
+ * of the tutorial data sets.
+ */
+public class ParallelCsvLoader {
+
+    // bounds for the size of each chunk, when it is determined automatically
+    private static final int MIN_CHUNK_BYTES = 64 * 1024;
+    private static final int MAX_CHUNK_BYTES = 8 * 1024 * 1024;
+
+    // number of bytes to read at a time when looking for a line break
+    private static final int SCAN_BYTES = 8192;
+
+    private final CsvTutorialData data;
+    private final ForkJoinPool pool;
+    private final int chunkBytes;
+
+    public ParallelCsvLoader(CsvTutorialData data) {
+        this(data, ForkJoinPool.commonPool());
+    }
+
+    public ParallelCsvLoader(CsvTutorialData data, ForkJoinPool pool) {
+        this(data, pool, 0);
+    }
+
+    /**
+     * @param data data set, used for the csv format and record parsing
+     * @param pool pool used to parse the chunks
+     * @param chunkBytes target size of each chunk, in bytes, or 0 to size chunks based on the pool parallelism
+     */
+    public ParallelCsvLoader(CsvTutorialData data, ForkJoinPool pool, int chunkBytes) {
+        if (chunkBytes < 0) {
+            throw new IllegalArgumentException("Chunk size must not be negative: " + chunkBytes);
+        }
+        this.data = data;
+        this.pool = pool;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Parses the input file configured for the data set, or the bundled classpath resource if there is none
+     *
+     * @param ordered return features in the same order as the input
+     * @return features
+     * @throws IOException on error
+     */
+    public List<SimpleFeature> load(boolean ordered) throws IOException {
+        Path file = data.getInputFile();
+        if (file != null) {
+            try (ByteSource source = data.isMemoryMapped() ? ByteSource.mapped(file) : ByteSource.file(file)) {
+                return load(source, ordered);
+            }
+        }
+        URL input = getClass().getClassLoader().getResource(data.getResourceName());
+        if (input == null) {
+            throw new RuntimeException("Couldn't load resource " + data.getResourceName());
+        }
+        try (ByteSource source = ByteSource.url(input)) {
+            return load(source, ordered);
+        }
+    }
+
+    /**
+     * Parses an external file
+     *
+     * @param file file, in the same format as the bundled resource for the data set
+     * @param ordered return features in the same order as the input
+     * @return features
+     * @throws IOException on error
+     */
+    public List<SimpleFeature> load(Path file, boolean ordered) throws IOException {
+        try (ByteSource source = ByteSource.file(file)) {
+            return load(source, ordered);
+        }
+    }
+
+    /**
+     * Parses an input source. The source is not closed by this method.
+     *
+     * @param source input bytes
+     * @param ordered return features in the same order as the input
+     * @return features
+     * @throws IOException on error
+     */
+    public List<SimpleFeature> load(ByteSource source, boolean ordered) throws IOException {
+        long[] boundaries = split(source);
+        int chunks = boundaries.length - 1;
+
+        // when ordered, each chunk gets its own slot and the results are concatenated at the end,
+        // otherwise chunks are added to a shared queue as they finish
+        List<List<SimpleFeature>> slots = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            slots.add(null);
+        }
+        Collection<List<SimpleFeature>> unordered = new ConcurrentLinkedQueue<>();
+
+        try {
+            pool.invoke(new ParseTask(source, boundaries, 0, chunks, ordered ? slots : null, unordered));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Collection<List<SimpleFeature>> results = ordered ? slots : unordered;
+        int total = 0;
+        for (List<SimpleFeature> result : results) {
+            total += result.size();
+        }
+        List<SimpleFeature> features = new ArrayList<>(total);
+        for (List<SimpleFeature> result : results) {
+            features.addAll(result);
+        }
+        return features;
+    }
+
+    /**
+     * Finds chunk boundaries, each one positioned just after a line break
+     *
+     * @param source input
+     * @return chunk offsets, starting with 0 and ending with the size of the input
+     * @throws IOException on error
+     */
+    private long[] split(ByteSource source) throws IOException {
+        long size = source.size();
+        long target = chunkBytes;
+        if (target == 0) {
+            // aim for a few chunks per thread, to even out the work
+            target = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, size / (pool.getParallelism() * 4L)));
+        }
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        byte[] buffer = new byte[SCAN_BYTES];
+        long position = target;
+        while (position < size) {
+            long boundary = nextLine(source, position, buffer);
+            if (boundary >= size) {
+                break;
+            }
+            boundaries.add(boundary);
+            position = boundary + target;
+        }
+        boundaries.add(size);
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the start of the next line at or after the given position
+     */
+    private static long nextLine(ByteSource source, long position, byte[] buffer) throws IOException {
+        while (true) {
+            int read = source.read(position, buffer, 0, buffer.length);
+            if (read < 0) {
+                return source.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Reads and parses a single chunk
+     */
+    private List<SimpleFeature> parse(ByteSource source, long start, long end) throws IOException {
+        byte[] bytes = new byte[(int) (end - start)];
+        int offset = 0;
+        while (offset < bytes.length) {
+            int read = source.read(start + offset, bytes, offset, bytes.length - offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of input at position " + (start + offset));
+            }
+            offset += read;
+        }
+        List<SimpleFeature> features = new ArrayList<>();
+        // decoders and feature builders are not thread-safe, so each chunk gets its own
+        Function<String, SimpleFeature> decoder = data.createLineDecoder();
+        if (decoder != null) {
+            String text = new String(bytes, StandardCharsets.UTF_8);
+            try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    SimpleFeature feature = decoder.apply(line);
+                    if (feature != null) {
+                        features.add(feature);
+                    }
+                }
+            }
+            return features;
+        }
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(data.getSimpleFeatureType());
+        try (CSVParser parser = CSVParser.parse(new String(bytes, StandardCharsets.UTF_8), data.getFormat())) {
+            for (CSVRecord record : parser) {
+                SimpleFeature feature = data.parse(record, builder);
+                if (feature != null) {
+                    features.add(feature);
+                }
+            }
+        }
+        return features;
+    }
+
+    /**
+     * Recursively splits a range of chunks in half until a single chunk is left, then parses it
+     */
+    private class ParseTask extends RecursiveAction {
+
+        private final ByteSource source;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+        private final List<List<SimpleFeature>> slots;
+        private final Collection<List<SimpleFeature>> unordered;
+
+        ParseTask(ByteSource source,
+                  long[] boundaries,
+                  int from,
+                  int to,
+                  List<List<SimpleFeature>> slots,
+                  Collection<List<SimpleFeature>> unordered) {
+            this.source = source;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+            this.slots = slots;
+            this.unordered = unordered;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ParseTask(source, boundaries, from, mid, slots, unordered),
+                          new ParseTask(source, boundaries, mid, to, slots, unordered));
+            } else if (to > from) {
+                List<SimpleFeature> features;
+                try {
+                    features = parse(source, boundaries[from], boundaries[to]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (slots == null) {
+                    unordered.add(features);
+                } else {
+                    // each task writes to a distinct index, and the pool join publishes the writes
+                    slots.set(from, features);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.data;
+
+import org.geotools.api.data.Query;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.filter.Filter;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.util.factory.Hints;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Generates test data of an arbitrary size, for load testing the quickstarts. Features are generated
+ * deterministically from a seed, and are created lazily as the stream is consumed, so large data sets
+ * don't need to fit in memory.
+ *
+ * The schema, queries and subset filter are taken from a template data set, so that the generated data
+ * can be used in place of the bundled data:
+ *
+ * <ul>
+ *     <li>EVENTS generates GDELT-like point events, using the GDELTData schema</li>
+ *     <li>TRACKS generates moving entities reporting their positions over time, using the TDriveData schema.
+ *     As with T-Drive, the entity ID is used as the feature ID, so later positions replace earlier ones in
+ *     stores that are keyed by feature ID</li>
+ * </ul>
+ */
+public class SyntheticData implements TutorialData {
+
+    public enum Mode {
+        EVENTS, TRACKS
+    }
+
+    // number of spatial hot spots that skewed features are clustered around
+    private static final int HOT_SPOTS = 8;
+
+    // spatial extents for each mode - events cover the world, while tracks cover the Beijing area like T-Drive
+    private static final double[] EVENTS_BOUNDS = new double[] { -180d, -90d, 180d, 90d };
+    private static final double[] TRACKS_BOUNDS = new double[] { 115.9d, 39.6d, 116.9d, 40.3d };
+
+    // start times for each mode, matching the bundled data sets so the test queries return results
+    private static final long EVENTS_START =
+          ZonedDateTime.of(2018, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+    private static final long TRACKS_START =
+          ZonedDateTime.of(2008, 2, 2, 0, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+
+    // values used for the GDELT-like attributes
+    private static final String[] ACTORS = new String[] {
+          "UNITED STATES", "CHINA", "RUSSIA", "POLICE", "GOVERNMENT", "PRESIDENT", "MILITARY", "SCHOOL",
+          "BUSINESS", "COMPANY", "CONGRESS", "PROTESTER", "JUDGE", "MINISTER", "COMMUNITY", ""
+    };
+    private static final String[] COUNTRIES = new String[] {
+          "USA", "CHN", "RUS", "GBR", "FRA", "DEU", "IND", "BRA", "NGA", "AUS", "CAN", "MEX", "JPN", "ZAF", ""
+    };
+    private static final String[] EVENT_CODES = new String[] {
+          "010", "020", "036", "040", "042", "043", "046", "051", "057", "112", "173", "190", "193"
+    };
+
+    private static final GeometryFactory gf = new GeometryFactory();
+
+    private final TutorialData template;
+    private final Mode mode;
+    private final long count;
+    private final long seed;
+    private final double skew;
+    private final int days;
+    private final int entities;
+
+    private List<SimpleFeature> features = null;
+
+    /**
+     * Generates data with a moderate spatial skew, over a single day
+     *
+     * @param template data set used for the schema and queries
+     * @param mode type of data to generate
+     * @param count number of features to generate
+     * @param seed random seed
+     */
+    public SyntheticData(TutorialData template, Mode mode, long count, long seed) {
+        this(template, mode, count, seed, 0.5d, 1, 100);
+    }
+
+    /**
+     * @param template data set used for the schema and queries
+     * @param mode type of data to generate
+     * @param count number of features to generate
+     * @param seed random seed
+     * @param skew fraction of features (or entities, for tracks) placed around hot spots instead of
+     *             uniformly, between 0 and 1
+     * @param days time span of the data, in days
+     * @param entities number of moving entities, used for tracks
+     */
+    public SyntheticData(TutorialData template,
+                         Mode mode,
+                         long count,
+                         long seed,
+                         double skew,
+                         int days,
+                         int entities) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        } else if (skew < 0d || skew > 1d) {
+            throw new IllegalArgumentException("Skew must be between 0 and 1: " + skew);
+        } else if (days < 1) {
+            throw new IllegalArgumentException("Days must be positive: " + days);
+        } else if (entities < 1) {
+            throw new IllegalArgumentException("Entities must be positive: " + entities);
+        }
+        this.template = template;
+        this.mode = mode;
+        this.count = count;
+        this.seed = seed;
+        this.skew = skew;
+        this.days = days;
+        this.entities = entities;
+    }
+
+    @Override
+    public String getTypeName() {
+        return template.getTypeName();
+    }
+
+    @Override
+    public SimpleFeatureType getSimpleFeatureType() {
+        return template.getSimpleFeatureType();
+    }
+
+    @Override
+    public List<SimpleFeature> getTestData() {
+        if (features == null) {
+            if (count > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Too many features to hold in memory, use streamTestData instead: " + count);
+            }
+            try (Stream<SimpleFeature> stream = streamTestData()) {
+                features = Collections.unmodifiableList(stream.collect(Collectors.toList()));
+            }
+        }
+        return features;
+    }
+
+    @Override
+    public Stream<SimpleFeature> streamTestData() {
+        // each stream starts from the same seed, so it will produce the same features
+        Generator generator = mode == Mode.EVENTS ? new EventGenerator() : new TrackGenerator();
+        return StreamSupport.stream(generator, false);
+    }
+
+    @Override
+    public List<Query> getTestQueries() {
+        return template.getTestQueries();
+    }
+
+    @Override
+    public Filter getSubsetFilter() {
+        return template.getSubsetFilter();
+    }
+
+    /**
+     * Base class for generating features one at a time
+     */
+    private abstract class Generator extends Spliterators.AbstractSpliterator<SimpleFeature> {
+
+        protected final SplittableRandom random = new SplittableRandom(seed);
+        protected final SimpleFeatureBuilder builder = new SimpleFeatureBuilder(getSimpleFeatureType());
+        protected final double[] bounds;
+        protected final double[][] hotSpots = new double[HOT_SPOTS][];
+        protected final double spread;
+        protected final long start;
+        protected final long span = days * 86400000L;
+
+        private long i = 0;
+
+        protected Generator(double[] bounds, long start) {
+            super(count, Spliterator.ORDERED | Spliterator.SIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+            this.bounds = bounds;
+            this.start = start;
+            // hot spots are spread out by a small fraction of the total extent
+            this.spread = (bounds[2] - bounds[0]) / 100d;
+            for (int h = 0; h < HOT_SPOTS; h++) {
+                hotSpots[h] = new double[] { uniform(bounds[0], bounds[2]), uniform(bounds[1], bounds[3]) };
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super SimpleFeature> action) {
+            if (i >= count) {
+                return false;
+            }
+            action.accept(next(i++));
+            return true;
+        }
+
+        /**
+         * Generate the next feature
+         *
+         * @param i index of the feature
+         * @return feature
+         */
+        protected abstract SimpleFeature next(long i);
+
+        /**
+         * Picks a location, either uniformly or around a hot spot based on the skew
+         *
+         * @return x, y
+         */
+        protected double[] location() {
+            if (random.nextDouble() < skew) {
+                // square the random value so that lower-numbered hot spots are hotter than the rest
+                double r = random.nextDouble();
+                double[] hotSpot = hotSpots[(int) (r * r * HOT_SPOTS)];
+                return new double[] {
+                      clamp(hotSpot[0] + gaussian() * spread, bounds[0], bounds[2]),
+                      clamp(hotSpot[1] + gaussian() * spread, bounds[1], bounds[3])
+                };
+            }
+            return new double[] { uniform(bounds[0], bounds[2]), uniform(bounds[1], bounds[3]) };
+        }
+
+        protected double uniform(double min, double max) {
+            return min + random.nextDouble() * (max - min);
+        }
+
+        protected double gaussian() {
+            // box-muller transform, as SplittableRandom doesn't provide gaussian values
+            double u = 1d - random.nextDouble(); // avoid log(0)
+            return Math.sqrt(-2d * Math.log(u)) * Math.cos(2d * Math.PI * random.nextDouble());
+        }
+
+        protected <T> T pick(T[] values) {
+            return values[random.nextInt(values.length)];
+        }
+
+        protected SimpleFeature build(String id) {
+            // be sure to tell GeoTools explicitly that we want to use the ID we provided
+            builder.featureUserData(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+            // build the feature - this also resets the feature builder for the next entry
+            return builder.buildFeature(id);
+        }
+    }
+
+    /**
+     * GDELT-like events, scattered randomly in space and time
+     */
+    private class EventGenerator extends Generator {
+
+        EventGenerator() {
+            super(EVENTS_BOUNDS, EVENTS_START);
+        }
+
+        @Override
+        protected SimpleFeature next(long i) {
+            String id = Long.toString(1_000_000_000L + i);
+            double[] location = location();
+            int mentions = 1 + random.nextInt(20);
+
+            builder.set("GLOBALEVENTID", id);
+            builder.set("Actor1Name", pick(ACTORS));
+            builder.set("Actor1CountryCode", pick(COUNTRIES));
+            builder.set("Actor2Name", pick(ACTORS));
+            builder.set("Actor2CountryCode", pick(COUNTRIES));
+            builder.set("EventCode", pick(EVENT_CODES));
+            builder.set("NumMentions", mentions);
+            builder.set("NumSources", 1 + random.nextInt(mentions));
+            builder.set("NumArticles", mentions);
+            builder.set("ActionGeo_Type", 1 + random.nextInt(4));
+            builder.set("ActionGeo_FullName", "Synthetic Location");
+            builder.set("ActionGeo_CountryCode", pick(COUNTRIES));
+            builder.set("dtg", new Date(start + (long) (random.nextDouble() * span)));
+            builder.set("geom", gf.createPoint(new Coordinate(location[0], location[1])));
+            return build(id);
+        }
+    }
+
+    /**
+     * Entities moving in a random walk, each reporting its position in turn
+     */
+    private class TrackGenerator extends Generator {
+
+        private final double[] x = new double[entities];
+        private final double[] y = new double[entities];
+        private final double[] heading = new double[entities];
+        private final long interval;
+
+        TrackGenerator() {
+            super(TRACKS_BOUNDS, TRACKS_START);
+            for (int e = 0; e < entities; e++) {
+                double[] location = location();
+                x[e] = location[0];
+                y[e] = location[1];
+                heading[e] = random.nextDouble() * 2 * Math.PI;
+            }
+            // spread each entity's reports evenly over the time span
+            long steps = Math.max(1L, (count + entities - 1) / entities);
+            interval = span / steps;
+        }
+
+        @Override
+        protected SimpleFeature next(long i) {
+            int e = (int) (i % entities);
+            long step = i / entities;
+            if (step > 0) {
+                move(e);
+            }
+            String id = Integer.toString(e);
+            builder.set("taxiId", id);
+            builder.set("dtg", new Date(start + step * interval));
+            builder.set("geom", gf.createPoint(new Coordinate(x[e], y[e])));
+            return build(id);
+        }
+
+        private void move(int e) {
+            // drift the heading a bit, and move roughly 50-200 meters
+            heading[e] += gaussian() * 0.3d;
+            double distance = uniform(0.0005d, 0.002d);
+            double nx = x[e] + Math.cos(heading[e]) * distance;
+            double ny = y[e] + Math.sin(heading[e]) * distance;
+            // turn around at the edges of the area
+            if (nx < bounds[0] || nx > bounds[2] || ny < bounds[1] || ny > bounds[3]) {
+                heading[e] += Math.PI;
+                nx = clamp(nx, bounds[0], bounds[2]);
+                ny = clamp(ny, bounds[1], bounds[3]);
+            }
+            x[e] = nx;
+            y[e] = ny;
+        }
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -9,7 +9,6 @@
 package org.geomesa.example.data;
 
 import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.geotools.api.data.Query;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
@@ -19,9 +18,6 @@ import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.api.feature.simple.SimpleFeatureType;
 import org.geotools.api.filter.Filter;
 
-import java.io.IOException;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
@@ -31,10 +27,12 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
-public class TDriveData implements TutorialData {
+public class TDriveData extends CsvTutorialData {
+
+    // date parser corresponding to the CSV format
+    private static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.US);
 
     private SimpleFeatureType sft = null;
-    private List<SimpleFeature> features = null;
     private List<Query> queries = null;
     private Filter subsetFilter = null;
 
@@ -65,51 +63,38 @@ public class TDriveData implements TutorialData {
     }
 
     @Override
-    public List<SimpleFeature> getTestData() {
-        if (features == null) {
-            List<SimpleFeature> features = new ArrayList<>();
-
-            // read the bundled t-drive CSV
-            URL input = getClass().getClassLoader().getResource("1277-reduced.txt");
-            if (input == null) {
-                throw new RuntimeException("Couldn't load resource 1277-reduced.txt");
-            }
-
-            // date parser corresponding to the CSV format
-            DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.US);
-
-            // use a geotools SimpleFeatureBuilder to create our features
-            SimpleFeatureBuilder builder = new SimpleFeatureBuilder(getSimpleFeatureType());
-
-            try (CSVParser parser = CSVParser.parse(input, StandardCharsets.UTF_8, CSVFormat.DEFAULT)) {
-                for (CSVRecord record : parser) {
-                    // use apache commons-csv to parse the t-drive file
-                    // pull out the fields corresponding to our simple feature attributes
-                    builder.set("taxiId", record.get(0));
-
-                    // some dates are converted implicitly, so we can set them as strings
-                    // however, the date format here isn't one that is converted, so we parse it into a java.util.Date
-                    builder.set("dtg", Date.from(LocalDateTime.parse(record.get(1), dateFormat).toInstant(ZoneOffset.UTC)));
-
-                    // we can use WKT (well-known-text) to represent geometries
-                    // note that we use longitude first ordering
-                    double longitude = Double.parseDouble(record.get(2));
-                    double latitude = Double.parseDouble(record.get(3));
-                    builder.set("geom", "POINT (" + longitude + " " + latitude + ")");
-
-                    // be sure to tell GeoTools explicitly that we want to use the ID we provided
-                     builder.featureUserData(Hints.USE_PROVIDED_FID, Boolean.TRUE);
-
-                    // build the feature - this also resets the feature builder for the next entry
-                    // use the taxi ID as the feature ID
-                    features.add(builder.buildFeature(record.get(0)));
-                }
-            } catch (IOException e) {
-                throw new RuntimeException("Error reading t-drive data:", e);
-            }
-            this.features = Collections.unmodifiableList(features);
-        }
-        return features;
+    public String getResourceName() {
+        // the bundled t-drive CSV
+        return "1277-reduced.txt";
+    }
+
+    @Override
+    public CSVFormat getFormat() {
+        return CSVFormat.DEFAULT;
+    }
+
+    @Override
+    public SimpleFeature parse(CSVRecord record, SimpleFeatureBuilder builder) {
+        // use apache commons-csv to parse the t-drive file
+        // pull out the fields corresponding to our simple feature attributes
+        builder.set("taxiId", record.get(0));
+
+        // some dates are converted implicitly, so we can set them as strings
+        // however, the date format here isn't one that is converted, so we parse it into a java.util.Date
+        builder.set("dtg", Date.from(LocalDateTime.parse(record.get(1), dateFormat).toInstant(ZoneOffset.UTC)));
+
+        // we can use WKT (well-known-text) to represent geometries
+        // note that we use longitude first ordering
+        double longitude = Double.parseDouble(record.get(2));
+        double latitude = Double.parseDouble(record.get(3));
+        builder.set("geom", "POINT (" + longitude + " " + latitude + ")");
+
+        // be sure to tell GeoTools explicitly that we want to use the ID we provided
+         builder.featureUserData(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+
+        // build the feature - this also resets the feature builder for the next entry
+        // use the taxi ID as the feature ID
+        return builder.buildFeature(record.get(0));
     }
 
     @Override
@@ -16,6 +16,7 @@ import org.geotools.api.feature.simple.SimpleFeatureType;
 import org.geotools.api.filter.Filter;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TutorialData {
 
@@ -25,6 +26,15 @@ public interface TutorialData {
     List<Query> getTestQueries();
     Filter getSubsetFilter();
 
+    /**
+     * Streams the test data, without requiring the entire data set to be held in memory. The stream
+     * must be closed when finished, in order to release any underlying resources.
+     *
+     * @return stream of test features
+     */
+    default Stream<SimpleFeature> streamTestData() {
+        return getTestData().stream();
+    }
 
     /**
      * Creates a geotools filter based on a bounding box and date range
@@ -62,4 +62,55 @@ public class CommandLineDataStore {
 
         return params;
     }
+
+    public static int getIntOption(CommandLine command, String option, int defaultValue) throws ParseException {
+        String value = command.getOptionValue(option);
+        if (value == null) {
+            return defaultValue;
+        }
+        int i;
+        try {
+            i = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            i = -1;
+        }
+        if (i < 1) {
+            throw new ParseException("Invalid value for '" + option + "', expected a positive integer: " + value);
+        }
+        return i;
+    }
+
+    public static int getNonNegativeIntOption(CommandLine command, String option, int defaultValue) throws ParseException {
+        String value = command.getOptionValue(option);
+        if (value == null) {
+            return defaultValue;
+        }
+        int i;
+        try {
+            i = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            i = -1;
+        }
+        if (i < 0) {
+            throw new ParseException("Invalid value for '" + option + "', expected a non-negative integer: " + value);
+        }
+        return i;
+    }
+
+    public static long getLongOption(CommandLine command, String option, long defaultValue) throws ParseException {
+        String value = command.getOptionValue(option);
+        if (value == null) {
+            return defaultValue;
+        }
+        long l;
+        try {
+            l = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            l = -1L;
+        }
+        if (l < 1L) {
+            throw new ParseException("Invalid value for '" + option + "', expected a positive integer: " + value);
+        }
+        return l;
+    }
 }
@@ -8,10 +8,20 @@
 
 package org.geomesa.example.quickstart;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.HdrHistogram.Histogram;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.geomesa.example.data.CompactFeatureList;
+import org.geomesa.example.data.CsvTutorialData;
+import org.geomesa.example.data.FeatureSnapshotCache;
+import org.geomesa.example.data.GDELTData;
+import org.geomesa.example.data.ParallelCsvLoader;
+import org.geomesa.example.data.SyntheticData;
+import org.geomesa.example.data.TDriveData;
 import org.geomesa.example.data.TutorialData;
 import org.geotools.api.data.DataAccessFactory.Param;
 import org.geotools.api.data.DataStore;
@@ -21,10 +31,13 @@ import org.geotools.api.data.FeatureReader;
 import org.geotools.api.data.FeatureWriter;
 import org.geotools.api.data.Query;
 import org.geotools.api.data.Transaction;
+import org.geotools.api.data.SimpleFeatureSource;
 import org.geotools.api.data.SimpleFeatureStore;
+import org.geotools.data.collection.ListFeatureCollection;
 import org.geotools.filter.identity.FeatureIdImpl;
 import org.geotools.filter.text.ecql.ECQL;
 import org.geotools.util.factory.Hints;
+import org.locationtech.geomesa.index.conf.QueryHints;
 import org.locationtech.geomesa.index.geotools.GeoMesaDataStore;
 import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.api.feature.simple.SimpleFeatureType;
@@ -32,16 +45,50 @@ import org.geotools.api.filter.Filter;
 import org.geotools.api.filter.sort.SortBy;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 public abstract class GeoMesaQuickStart implements Runnable {
 
+    private enum QueryMode {
+        FULL, COUNT, LIMIT
+    }
+
     public final Map<String, String> params;
     private final TutorialData data;
     private final boolean cleanup;
     private final boolean readOnly;
+    private final int writers;
+    private final boolean streaming;
+    private final int parseThreads;
+    private final int batchSize;
+    private final int zSortBuffer;
+    private final boolean writeComparison;
+    private final QueryMode queryMode;
+    private final int queryLimit;
+    private final boolean explain;
+    private final boolean queryLoad;
+    private final Path metricsFile;
+    private final Path reportFile;
+    private final int metricsPort;
+
+    private QuickStartMetrics metrics = QuickStartMetrics.disabled();
+    private final QuickStartReport report = new QuickStartReport();
+    private final int queryThreads;
+    private final int queryRate;
+    private final int queryDuration;
+    private final int queryWarmup;
 
     public GeoMesaQuickStart(String[] args, Param[] parameters, TutorialData data) throws ParseException {
         this(args, parameters, data, false);
@@ -51,47 +98,348 @@ public abstract class GeoMesaQuickStart implements Runnable {
         // parse the data store parameters from the command line
         Options options = createOptions(parameters);
         CommandLine command = CommandLineDataStore.parseArgs(getClass(), options, args);
-        params = CommandLineDataStore.getDataStoreParams(command, options);
-        cleanup = command.hasOption("cleanup");
-        this.data = data;
-        this.readOnly = readOnly;
-        initializeFromOptions(command);
+        try {
+            // only pass through the data store parameters, not the quickstart options
+            params = CommandLineDataStore.getDataStoreParams(command, CommandLineDataStore.createOptions(parameters));
+            cleanup = command.hasOption("cleanup");
+            writers = CommandLineDataStore.getIntOption(command, "writers", 1);
+            streaming = command.hasOption("streaming");
+            parseThreads = CommandLineDataStore.getIntOption(command, "parse-threads", 1);
+            batchSize = CommandLineDataStore.getNonNegativeIntOption(command, "batch-size", 0);
+            writeComparison = command.hasOption("write-comparison");
+            if (command.hasOption("z-sort")) {
+                zSortBuffer = CommandLineDataStore.getIntOption(command, "z-sort-buffer", 1_000_000);
+            } else {
+                zSortBuffer = 0;
+            }
+            if (batchSize > 0 && writers > 1) {
+                throw new ParseException("Options 'batch-size' and 'writers' can't be used together");
+            }
+            if (!usesDefaultWrites()) {
+                for (String option : Arrays.asList("streaming", "writers", "write-comparison")) {
+                    if (command.hasOption(option)) {
+                        throw new ParseException("Option '" + option + "' is not supported for " +
+                                                 getClass().getName());
+                    }
+                }
+            }
+            if (streaming) {
+                for (String option : Arrays.asList("write-comparison", "parse-threads", "compact")) {
+                    if (command.hasOption(option)) {
+                        throw new ParseException("Options 'streaming' and '" + option + "' can't be used together");
+                    }
+                }
+            }
+            queryLimit = CommandLineDataStore.getIntOption(command, "query-limit", 10);
+            String mode = command.getOptionValue("query-mode", "full");
+            try {
+                queryMode = QueryMode.valueOf(mode.trim().toUpperCase(Locale.US));
+            } catch (IllegalArgumentException e) {
+                throw new ParseException("Invalid value for 'query-mode', expected one of full, count or limit: " +
+                                         mode);
+            }
+            explain = command.hasOption("explain");
+            queryLoad = command.hasOption("query-load");
+            metricsFile = command.hasOption("metrics-file") ? Paths.get(command.getOptionValue("metrics-file")) : null;
+            reportFile = command.hasOption("report-file") ? Paths.get(command.getOptionValue("report-file")) : null;
+            metricsPort =
+                  command.hasOption("metrics-port") ? CommandLineDataStore.getIntOption(command, "metrics-port", -1) : -1;
+            queryThreads = CommandLineDataStore.getIntOption(command, "query-threads", 4);
+            queryRate = CommandLineDataStore.getNonNegativeIntOption(command, "query-rate", 0);
+            queryDuration = CommandLineDataStore.getIntOption(command, "query-duration", 60);
+            queryWarmup = CommandLineDataStore.getNonNegativeIntOption(command, "query-warmup", 10);
+            this.readOnly = readOnly;
+            if (command.hasOption("synthetic")) {
+                if (command.hasOption("input")) {
+                    throw new ParseException("Options 'synthetic' and 'input' can't be used together");
+                }
+                this.data = createSyntheticData(command, data);
+            } else {
+                this.data = data;
+            }
+            if (command.hasOption("input")) {
+                if (!(data instanceof CsvTutorialData)) {
+                    throw new ParseException("Option 'input' is not supported for " + data.getClass().getName());
+                }
+                Path input = Paths.get(command.getOptionValue("input"));
+                if (!Files.isRegularFile(input)) {
+                    throw new ParseException("Input file does not exist: " + input);
+                }
+                ((CsvTutorialData) data).setInputFile(input, command.hasOption("mmap"));
+            }
+            if (command.hasOption("snapshot-dir")) {
+                if (!(this.data instanceof CsvTutorialData)) {
+                    throw new ParseException("Option 'snapshot-dir' is not supported for " +
+                                             this.data.getClass().getName());
+                }
+                Path dir = Paths.get(command.getOptionValue("snapshot-dir"));
+                ((CsvTutorialData) this.data).setSnapshotCache(new FeatureSnapshotCache(dir));
+            }
+            if (command.hasOption("compact")) {
+                if (!(this.data instanceof CsvTutorialData)) {
+                    throw new ParseException("Option 'compact' is not supported for " + this.data.getClass().getName());
+                } else if (!supportsCompactFeatures()) {
+                    throw new ParseException("Option 'compact' is not supported for " + getClass().getName());
+                }
+                ((CsvTutorialData) this.data).setCompact(true);
+            }
+            initializeFromOptions(command);
+        } catch (ParseException e) {
+            // errors from parsing the arguments are printed by parseArgs, but errors in their values are not
+            System.err.println(e.getMessage());
+            throw e;
+        }
     }
 
     public Options createOptions(Param[] parameters) {
         // parse the data store parameters from the command line
         Options options = CommandLineDataStore.createOptions(parameters);
+        options.addOption(Option.builder().longOpt("query-mode").argName("query-mode").hasArg()
+                                .desc("How to run the test queries: 'full' to return all results, 'count' to only count " +
+                                      "results, or 'limit' to return a limited number of results (default full)")
+                                .build());
+        options.addOption(Option.builder().longOpt("query-limit").argName("query-limit").hasArg()
+                                .desc("Max number of results to return, with the 'limit' query mode (default 10)")
+                                .build());
+        options.addOption(Option.builder().longOpt("metrics-file").argName("metrics-file").hasArg()
+                                .desc("Write metrics in Prometheus format to the given file, updated periodically")
+                                .build());
+        options.addOption(Option.builder().longOpt("metrics-port").argName("metrics-port").hasArg()
+                                .desc("Serve metrics in Prometheus format on the given port, at '/metrics'")
+                                .build());
+        options.addOption(Option.builder().longOpt("report-file").argName("report-file").hasArg()
+                                .desc("Write a summary of ingest and query timings to the given file, in properties format")
+                                .build());
+        options.addOption(Option.builder().longOpt("explain")
+                                .desc("Print the query plan and timings for each query before running it")
+                                .build());
+        options.addOption(Option.builder().longOpt("query-load")
+                                .desc("Run the test queries concurrently for a period of time and report latencies, " +
+                                      "instead of running them once")
+                                .build());
+        options.addOption(Option.builder().longOpt("query-threads").argName("query-threads").hasArg()
+                                .desc("Number of threads used to run queries when generating query load (default 4)")
+                                .build());
+        options.addOption(Option.builder().longOpt("query-rate").argName("query-rate").hasArg()
+                                .desc("Target number of queries per second when generating query load, or 0 for no limit (default 0)")
+                                .build());
+        options.addOption(Option.builder().longOpt("query-duration").argName("query-duration").hasArg()
+                                .desc("Number of seconds to measure when generating query load (default 60)")
+                                .build());
+        options.addOption(Option.builder().longOpt("query-warmup").argName("query-warmup").hasArg()
+                                .desc("Number of seconds to warm up before measuring when generating query load (default 10)")
+                                .build());
         if (!readOnly) {
             options.addOption(Option.builder().longOpt("cleanup").desc("Delete tables after running").build());
+            options.addOption(Option.builder().longOpt("writers").argName("writers").hasArg()
+                                    .desc("Number of feature writers to use in parallel when writing (default 1)")
+                                    .build());
+            options.addOption(Option.builder().longOpt("streaming")
+                                    .desc("Stream the test data while writing, instead of loading it all into memory first")
+                                    .build());
+            options.addOption(Option.builder().longOpt("batch-size").argName("batch-size").hasArg()
+                                    .desc("Write features through SimpleFeatureStore.addFeatures in batches of the given size, " +
+                                          "instead of copying each feature into a feature writer (default 0, disabled)")
+                                    .build());
+            options.addOption(Option.builder().longOpt("write-comparison")
+                                    .desc("Write the test data with both per-feature copies and batches, and compare the throughput")
+                                    .build());
+            options.addOption(Option.builder().longOpt("z-sort")
+                                    .desc("Sort the test data by its GeoMesa Z3 (or Z2) index key before writing it")
+                                    .build());
+            options.addOption(Option.builder().longOpt("z-sort-buffer").argName("z-sort-buffer").hasArg()
+                                    .desc("Max number of features to sort in memory, before spilling sorted runs to disk " +
+                                          "(default 1000000)")
+                                    .build());
+            options.addOption(Option.builder().longOpt("parse-threads").argName("parse-threads").hasArg()
+                                    .desc("Number of threads to use when parsing the test data (default 1)")
+                                    .build());
+            options.addOption(Option.builder().longOpt("input").argName("input").hasArg()
+                                    .desc("Read the test data from an external file instead of the bundled resource")
+                                    .build());
+            options.addOption(Option.builder().longOpt("mmap")
+                                    .desc("Memory-map the external input file when reading it")
+                                    .build());
+            options.addOption(Option.builder().longOpt("snapshot-dir").argName("snapshot-dir").hasArg()
+                                    .desc("Directory used to cache a binary snapshot of the parsed test data between runs")
+                                    .build());
+            options.addOption(Option.builder().longOpt("compact")
+                                    .desc("Hold the test data in memory in a compact columnar form, instead of as regular features")
+                                    .build());
+            options.addOption(Option.builder().longOpt("synthetic").argName("synthetic").hasArg()
+                                    .desc("Generate the given number of synthetic features instead of using the bundled data " +
+                                          "(combine with 'streaming' for large counts)")
+                                    .build());
+            options.addOption(Option.builder().longOpt("synthetic-seed").argName("synthetic-seed").hasArg()
+                                    .desc("Random seed used to generate synthetic features (default 0)")
+                                    .build());
+            options.addOption(Option.builder().longOpt("synthetic-skew").argName("synthetic-skew").hasArg()
+                                    .desc("Fraction of synthetic features clustered around hot spots, between 0 and 1 (default 0.5)")
+                                    .build());
+            options.addOption(Option.builder().longOpt("synthetic-days").argName("synthetic-days").hasArg()
+                                    .desc("Time span of synthetic features, in days (default 1)")
+                                    .build());
+            options.addOption(Option.builder().longOpt("synthetic-entities").argName("synthetic-entities").hasArg()
+                                    .desc("Number of moving entities, when generating synthetic tracks (default 100)")
+                                    .build());
         }
         return options;
     }
 
-    public void initializeFromOptions(CommandLine command) {
+    public void initializeFromOptions(CommandLine command) throws ParseException {
+    }
+
+    /**
+     * Whether features are written through the default implementation of writeFeatures. The 'streaming',
+     * 'writers' and 'write-comparison' command-line options depend on it, so subclasses that override the
+     * List variant of writeFeatures should return false. Note that this is called from the constructor.
+     *
+     * @return true if the default writes are used
+     */
+    public boolean usesDefaultWrites() {
+        return true;
+    }
+
+    /**
+     * Whether the 'compact' command-line option is supported. Compact features are created on each access
+     * and don't keep any changes, so subclasses that modify the test features in getTestFeatures should
+     * return false. Note that this is called from the constructor.
+     *
+     * @return true if compact features are supported
+     */
+    public boolean supportsCompactFeatures() {
+        return true;
+    }
+
+    /**
+     * Metrics for the current run, which will be no-ops unless metrics output is enabled through the
+     * 'metrics-file' or 'metrics-port' command-line options
+     *
+     * @return metrics
+     */
+    public QuickStartMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Summary of the current run, which will be written out if the 'report-file' command-line option is set
+     *
+     * @return report
+     */
+    public QuickStartReport getReport() {
+        return report;
+    }
+
+    /**
+     * Batch size for writes, set through the 'batch-size' command-line option
+     *
+     * @return batch size, or 0 if features should be written individually
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Creates a synthetic data set to use in place of the tutorial data. Enabled through the 'synthetic'
+     * command-line option.
+     *
+     * @param command parsed command line
+     * @param data tutorial data, used as a template for the synthetic data
+     * @return synthetic data
+     * @throws ParseException if the options are invalid, or the tutorial data can't be synthesized
+     */
+    public TutorialData createSyntheticData(CommandLine command, TutorialData data) throws ParseException {
+        SyntheticData.Mode mode;
+        if (data instanceof GDELTData) {
+            mode = SyntheticData.Mode.EVENTS;
+        } else if (data instanceof TDriveData) {
+            mode = SyntheticData.Mode.TRACKS;
+        } else {
+            throw new ParseException("Option 'synthetic' is not supported for " + data.getClass().getName());
+        }
+        long count = CommandLineDataStore.getLongOption(command, "synthetic", 1L);
+        int days = CommandLineDataStore.getIntOption(command, "synthetic-days", 1);
+        int entities = CommandLineDataStore.getIntOption(command, "synthetic-entities", 100);
+        long seed;
+        double skew;
+        try {
+            seed = Long.parseLong(command.getOptionValue("synthetic-seed", "0").trim());
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid value for 'synthetic-seed', expected an integer: " +
+                                     command.getOptionValue("synthetic-seed"));
+        }
+        try {
+            skew = Double.parseDouble(command.getOptionValue("synthetic-skew", "0.5").trim());
+        } catch (NumberFormatException e) {
+            skew = -1d;
+        }
+        if (skew < 0d || skew > 1d) {
+            throw new ParseException("Invalid value for 'synthetic-skew', expected a number between 0 and 1: " +
+                                     command.getOptionValue("synthetic-skew"));
+        }
+        return new SyntheticData(data, mode, count, seed, skew, days, entities);
     }
 
     @Override
     public void run() {
         DataStore datastore = null;
         try {
+            if (metricsFile != null || metricsPort > 0) {
+                metrics = new QuickStartMetrics(metricsFile, metricsPort);
+            }
             datastore = createDataStore(params);
+            report.put("datastore", datastore.getClass().getName());
+            report.put("type", data.getTypeName());
 
             if (readOnly) {
                 ensureSchema(datastore, data);
             } else {
                 SimpleFeatureType sft = getSimpleFeatureType(data);
                 createSchema(datastore, sft);
-                List<SimpleFeature> features = getTestFeatures(data);
-                writeFeatures(datastore, sft, features);
+                if (streaming) {
+                    // use try-with-resources to ensure the stream is closed
+                    try (Stream<SimpleFeature> features = streamTestFeatures(data)) {
+                        if (zSortBuffer > 0) {
+                            try (Stream<SimpleFeature> sorted = sortFeatures(sft, features.iterator())) {
+                                writeFeatures(datastore, sft, sorted.iterator());
+                            }
+                        } else {
+                            writeFeatures(datastore, sft, features.iterator());
+                        }
+                    }
+                } else {
+                    List<SimpleFeature> features = getTestFeatures(data);
+                    if (zSortBuffer > 0) {
+                        features = sortFeatures(sft, features);
+                    }
+                    if (writeComparison) {
+                        compareWrites(datastore, sft, features);
+                    } else {
+                        writeFeatures(datastore, sft, features);
+                    }
+                }
             }
 
             List<Query> queries = getTestQueries(data);
 
-            queryFeatures(datastore, queries);
+            if (queryLoad) {
+                generateQueryLoad(datastore, queries);
+            } else {
+                queryFeatures(datastore, queries);
+            }
+
+            if (reportFile != null) {
+                report.write(reportFile);
+            }
         } catch (Exception e) {
             throw new RuntimeException("Error running quickstart:", e);
         } finally {
             cleanup(datastore, data.getTypeName(), cleanup);
+            try {
+                metrics.close();
+            } catch (IOException e) {
+                System.err.println("Exception writing metrics: " + e.toString());
+            }
         }
         System.out.println("Done");
     }
@@ -99,11 +447,20 @@ public abstract class GeoMesaQuickStart implements Runnable {
     public DataStore createDataStore(Map<String, String> params) throws IOException {
         System.out.println("Loading datastore");
 
+        QuickStartMetrics.PhaseEvent event = new QuickStartMetrics.PhaseEvent();
+        event.phase = "createDataStore";
+        event.begin();
+        long start = System.nanoTime();
+
         // use geotools service loading to get a datastore instance
         DataStore datastore = DataStoreFinder.getDataStore(params);
         if (datastore == null) {
             throw new RuntimeException("Could not create data store with provided parameters");
         }
+
+        metrics.timer("datastore.create").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        event.commit();
+
         System.out.println();
         return datastore;
     }
@@ -122,60 +479,307 @@ public abstract class GeoMesaQuickStart implements Runnable {
 
     public void createSchema(DataStore datastore, SimpleFeatureType sft) throws IOException {
         System.out.println("Creating schema: " + DataUtilities.encodeType(sft));
+
+        QuickStartMetrics.PhaseEvent event = new QuickStartMetrics.PhaseEvent();
+        event.phase = "createSchema";
+        event.typeName = sft.getTypeName();
+        event.begin();
+        long start = System.nanoTime();
+
         // we only need to do the once - however, calling it repeatedly is a no-op
         datastore.createSchema(sft);
+
+        metrics.timer("schema.create", "type", sft.getTypeName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        event.commit();
+
         System.out.println();
     }
 
     public List<SimpleFeature> getTestFeatures(TutorialData data) {
         System.out.println("Generating test data");
-        List<SimpleFeature> features = data.getTestData();
+        List<SimpleFeature> features;
+        if (parseThreads > 1 && data instanceof CsvTutorialData &&
+            ((CsvTutorialData) data).getSnapshotCache() == null) {
+            features = parseTestFeatures((CsvTutorialData) data);
+        } else {
+            long start = System.currentTimeMillis();
+            features = data.getTestData();
+            System.out.println("Loaded " + features.size() + " features in " +
+                               (System.currentTimeMillis() - start) + "ms");
+        }
         System.out.println();
         return features;
     }
 
+    /**
+     * Parses the test data using multiple threads. Enabled through the 'parse-threads' command-line option.
+     *
+     * @param data tutorial data
+     * @return features, in the same order as the input
+     */
+    public List<SimpleFeature> parseTestFeatures(CsvTutorialData data) {
+        ForkJoinPool pool = new ForkJoinPool(parseThreads);
+        try {
+            long start = System.currentTimeMillis();
+            List<SimpleFeature> features =
+                  new ParallelCsvLoader(data, pool).load(true);
+            if (data.isCompact()) {
+                features = CompactFeatureList.copyOf(data.getSimpleFeatureType(), features);
+            }
+            System.out.println("Parsed " + features.size() + " features using " + parseThreads + " threads in " +
+                               (System.currentTimeMillis() - start) + "ms");
+            return features;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error parsing test data:", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Streams the test data, used instead of getTestFeatures when the 'streaming' command-line option is set.
+     * Subclasses that modify the test features should override both methods, and supportsCompactFeatures.
+     *
+     * @param data tutorial data
+     * @return stream of features, which must be closed after use
+     */
+    public Stream<SimpleFeature> streamTestFeatures(TutorialData data) {
+        System.out.println("Streaming test data");
+        System.out.println();
+        return data.streamTestData();
+    }
+
+    /**
+     * Sorts features by their z-order index key, so that writes have better locality. Enabled through
+     * the 'z-sort' command-line option.
+     *
+     * @param sft simple feature type
+     * @param features features
+     * @return sorted features
+     */
+    public List<SimpleFeature> sortFeatures(SimpleFeatureType sft, List<SimpleFeature> features) {
+        long start = System.currentTimeMillis();
+        List<SimpleFeature> sorted = new ZOrderSorter(sft, zSortBuffer).sort(features);
+        System.out.println("Sorted " + sorted.size() + " features by z-order in " +
+                           (System.currentTimeMillis() - start) + "ms");
+        System.out.println();
+        return sorted;
+    }
+
+    /**
+     * Sorts streaming features by their z-order index key, spilling to disk if there are too many
+     * to sort in memory. Enabled through the 'z-sort' command-line option.
+     *
+     * @param sft simple feature type
+     * @param features features
+     * @return sorted features, which must be closed after use
+     * @throws IOException on error
+     */
+    public Stream<SimpleFeature> sortFeatures(SimpleFeatureType sft, Iterator<SimpleFeature> features) throws IOException {
+        long start = System.currentTimeMillis();
+        Stream<SimpleFeature> sorted = new ZOrderSorter(sft, zSortBuffer).sort(features);
+        // note: when spilling to disk, this includes writing the sorted runs but not merging them
+        System.out.println("Sorted features by z-order in " + (System.currentTimeMillis() - start) + "ms");
+        System.out.println();
+        return sorted;
+    }
+
     public List<Query> getTestQueries(TutorialData data) {
         return data.getTestQueries();
     }
 
     public void writeFeatures(DataStore datastore, SimpleFeatureType sft, List<SimpleFeature> features) throws IOException {
         if (features.size() > 0) {
-            System.out.println("Writing test data");
-            // use try-with-resources to ensure the writer is closed
-            try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
-                     datastore.getFeatureWriterAppend(sft.getTypeName(), Transaction.AUTO_COMMIT)) {
-                for (SimpleFeature feature : features) {
-                    // using a geotools writer, you have to get a feature, modify it, then commit it
-                    // appending writers will always return 'false' for haveNext, so we don't need to bother checking
-                    SimpleFeature toWrite = writer.next();
+            writeFeatures(datastore, sft, features.iterator());
+        }
+    }
 
-                    // copy attributes
-                    toWrite.setAttributes(feature.getAttributes());
+    public void writeFeatures(DataStore datastore, SimpleFeatureType sft, Iterator<SimpleFeature> features) throws IOException {
+        if (batchSize > 0) {
+            writeFeaturesInBatches(datastore, sft, features, batchSize);
+            return;
+        } else if (writers > 1) {
+            writeFeaturesInParallel(datastore, sft, features);
+            return;
+        }
+        System.out.println("Writing test data");
+        Timer latency = metrics.timer("write.feature", "type", sft.getTypeName());
+        Counter written = metrics.counter("features.written", "type", sft.getTypeName());
+        QuickStartMetrics.WriteEvent event = new QuickStartMetrics.WriteEvent();
+        event.typeName = sft.getTypeName();
+        event.begin();
+        long start = System.currentTimeMillis();
+        long n = 0;
+        // use try-with-resources to ensure the writer is closed
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                 datastore.getFeatureWriterAppend(sft.getTypeName(), Transaction.AUTO_COMMIT)) {
+            while (features.hasNext()) {
+                SimpleFeature feature = features.next();
+                long t = System.nanoTime();
+                writeFeature(writer, feature);
+                latency.record(System.nanoTime() - t, TimeUnit.NANOSECONDS);
+                written.increment();
+                n++;
+            }
+        }
+        event.features = n;
+        event.commit();
+        long elapsed = System.currentTimeMillis() - start;
+        report.ingest(n, elapsed);
+        System.out.println("Wrote " + n + " features in " + elapsed + "ms");
+        System.out.println();
+    }
+
+    /**
+     * Writes features by handing them to a feature store in batches. The features are passed through
+     * as-is, without copying their attributes into features obtained from a feature writer. Enabled
+     * through the 'batch-size' command-line option.
+     *
+     * @param datastore data store
+     * @param sft simple feature type
+     * @param features features to write - any provided feature IDs should be flagged with the USE_PROVIDED_FID hint
+     * @param batchSize number of features to write at once
+     * @return number of features written
+     * @throws IOException on error
+     */
+    public long writeFeaturesInBatches(DataStore datastore,
+                                       SimpleFeatureType sft,
+                                       Iterator<SimpleFeature> features,
+                                       int batchSize) throws IOException {
+        System.out.println("Writing test data in batches of " + batchSize);
+        long start = System.currentTimeMillis();
+        long n = 0;
+        SimpleFeatureStore store = (SimpleFeatureStore) datastore.getFeatureSource(sft.getTypeName());
+        Timer latency = metrics.timer("write.batch", "type", sft.getTypeName());
+        Counter written = metrics.counter("features.written", "type", sft.getTypeName());
+        List<SimpleFeature> batch = new ArrayList<>(batchSize);
+        while (features.hasNext()) {
+            batch.add(features.next());
+            if (batch.size() == batchSize || !features.hasNext()) {
+                QuickStartMetrics.WriteEvent event = new QuickStartMetrics.WriteEvent();
+                event.typeName = sft.getTypeName();
+                event.features = batch.size();
+                event.begin();
+                long t = System.nanoTime();
+                // the feature collection wraps the list without copying it
+                store.addFeatures(new ListFeatureCollection(sft, batch));
+                latency.record(System.nanoTime() - t, TimeUnit.NANOSECONDS);
+                event.commit();
+                written.increment(batch.size());
+                n += batch.size();
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        report.ingest(n, elapsed);
+        System.out.println("Wrote " + n + " features in " + elapsed + "ms " + rate(n, elapsed));
+        System.out.println();
+        return n;
+    }
 
-                    // if you want to set the feature ID, you have to cast to an implementation class
-                    // and add the USE_PROVIDED_FID hint to the user data
-                     ((FeatureIdImpl) toWrite.getIdentifier()).setID(feature.getID());
-                     toWrite.getUserData().put(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+    /**
+     * Writes the features twice, once copying each feature into a feature writer and once using batches, and
+     * compares the throughput. Enabled through the 'write-comparison' command-line option.
+     *
+     * @param datastore data store
+     * @param sft simple feature type
+     * @param features features to write
+     * @throws IOException on error
+     */
+    public void compareWrites(DataStore datastore, SimpleFeatureType sft, List<SimpleFeature> features) throws IOException {
+        int batch = batchSize > 0 ? batchSize : 1000;
+        SimpleFeatureStore store = (SimpleFeatureStore) datastore.getFeatureSource(sft.getTypeName());
 
-                    // alternatively, you can use the PROVIDED_FID hint directly
-                    // toWrite.getUserData().put(Hints.PROVIDED_FID, feature.getID());
+        System.out.println("Comparing per-feature and batched writes");
+        long start = System.currentTimeMillis();
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                 datastore.getFeatureWriterAppend(sft.getTypeName(), Transaction.AUTO_COMMIT)) {
+            for (SimpleFeature feature : features) {
+                writeFeature(writer, feature);
+            }
+        }
+        long copied = System.currentTimeMillis() - start;
 
-                    // if no feature ID is set, a UUID will be generated for you
+        // remove the features so that the second pass writes the same amount of data
+        store.removeFeatures(Filter.INCLUDE);
 
-                    // make sure to copy the user data, if there is any
-                    toWrite.getUserData().putAll(feature.getUserData());
+        start = System.currentTimeMillis();
+        for (int i = 0; i < features.size(); i += batch) {
+            List<SimpleFeature> chunk = features.subList(i, Math.min(i + batch, features.size()));
+            store.addFeatures(new ListFeatureCollection(sft, chunk));
+        }
+        long batched = System.currentTimeMillis() - start;
 
-                    // write the feature
-                    writer.write();
-                }
-            }
-            System.out.println("Wrote " + features.size() + " features");
-            System.out.println();
+        // report the batched pass, as those are the features left in the store
+        report.ingest(features.size(), batched);
+        report.put("ingest.copy.millis", copied);
+
+        System.out.println("Per-feature copy: wrote " + features.size() + " features in " + copied + "ms " +
+                           rate(features.size(), copied));
+        System.out.println("Batches of " + batch + ": wrote " + features.size() + " features in " + batched + "ms " +
+                           rate(features.size(), batched));
+        System.out.println();
+    }
+
+    private static String rate(long count, long millis) {
+        if (millis <= 0) {
+            return "(n/a features/sec)";
         }
+        return String.format("(%.0f features/sec)", count * 1000d / millis);
+    }
+
+    /**
+     * Writes features using multiple feature writers, each on its own thread. Enabled through the
+     * 'writers' command-line option.
+     *
+     * @param datastore data store
+     * @param sft simple feature type
+     * @param features features to write
+     * @throws IOException if any of the writers fail
+     */
+    public void writeFeaturesInParallel(DataStore datastore, SimpleFeatureType sft, Iterator<SimpleFeature> features) throws IOException {
+        System.out.println("Writing test data with " + writers + " parallel writers");
+        long start = System.currentTimeMillis();
+        long n = new ParallelFeatureWriter(datastore, sft, writers, this::writeFeature).write(features);
+        report.ingest(n, System.currentTimeMillis() - start);
+        System.out.println();
+    }
+
+    /**
+     * Writes a single feature to an appending feature writer
+     *
+     * @param writer appending feature writer
+     * @param feature feature to write
+     * @throws IOException on error
+     */
+    public void writeFeature(FeatureWriter<SimpleFeatureType, SimpleFeature> writer, SimpleFeature feature) throws IOException {
+        // using a geotools writer, you have to get a feature, modify it, then commit it
+        // appending writers will always return 'false' for haveNext, so we don't need to bother checking
+        SimpleFeature toWrite = writer.next();
+
+        // copy attributes
+        toWrite.setAttributes(feature.getAttributes());
+
+        // if you want to set the feature ID, you have to cast to an implementation class
+        // and add the USE_PROVIDED_FID hint to the user data
+         ((FeatureIdImpl) toWrite.getIdentifier()).setID(feature.getID());
+         toWrite.getUserData().put(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+
+        // alternatively, you can use the PROVIDED_FID hint directly
+        // toWrite.getUserData().put(Hints.PROVIDED_FID, feature.getID());
+
+        // if no feature ID is set, a UUID will be generated for you
+
+        // make sure to copy the user data, if there is any
+        toWrite.getUserData().putAll(feature.getUserData());
+
+        // write the feature
+        writer.write();
     }
 
     public void queryFeatures(DataStore datastore, List<Query> queries) throws IOException {
-        for (Query query : queries) {
+        for (int i = 0; i < queries.size(); i++) {
+            Query query = queries.get(i);
             System.out.println("Running query " + ECQL.toCQL(query.getFilter()));
             if (query.getPropertyNames() != null) {
                 System.out.println("Returning attributes " + Arrays.asList(query.getPropertyNames()));
@@ -184,6 +788,24 @@ public abstract class GeoMesaQuickStart implements Runnable {
                 SortBy sort = query.getSortBy()[0];
                 System.out.println("Sorting by " + sort.getPropertyName() + " " + sort.getSortOrder());
             }
+            if (explain) {
+                System.out.println(QueryProfile.run(datastore, query).report());
+            }
+            if (queryMode == QueryMode.COUNT) {
+                countFeatures(datastore, query, i);
+                continue;
+            } else if (queryMode == QueryMode.LIMIT) {
+                // limit the query to the number of features we want, so that the data store can stop scanning early
+                query = new Query(query);
+                query.setMaxFeatures(queryLimit);
+                System.out.println("Limiting results to " + queryLimit + " features");
+            }
+            QuickStartMetrics.QueryEvent event = new QuickStartMetrics.QueryEvent();
+            event.typeName = query.getTypeName();
+            event.filter = ECQL.toCQL(query.getFilter());
+            event.begin();
+            long start = System.currentTimeMillis();
+            long nanos = System.nanoTime();
             // submit the query, and get back an iterator over matching features
             // use try-with-resources to ensure the reader is closed
             try (FeatureReader<SimpleFeatureType, SimpleFeature> reader =
@@ -199,10 +821,122 @@ public abstract class GeoMesaQuickStart implements Runnable {
                         System.out.println("...");
                     }
                 }
+                String[] tags = new String[] { "type", query.getTypeName(), "query", Integer.toString(i) };
+                metrics.timer("query", tags).record(System.nanoTime() - nanos, TimeUnit.NANOSECONDS);
+                metrics.counter("features.read", tags).increment(n);
+                event.features = n;
+                event.commit();
+                long elapsed = System.currentTimeMillis() - start;
+                report.query(i, QueryLoadGenerator.describe(query), n, elapsed);
                 System.out.println();
-                System.out.println("Returned " + n + " total features");
-                System.out.println();
+                System.out.println("Returned " + n + " total features in " + elapsed + "ms");
+            }
+            if (queryMode == QueryMode.LIMIT) {
+                // for comparison, time the same query without the limit
+                compareToFullIteration(datastore, query, i);
             }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Counts the features matching a query, without returning them. Enabled through the
+     * 'query-mode count' command-line option.
+     *
+     * @param datastore data store
+     * @param query query
+     * @param i query number, used for metrics and the report
+     * @throws IOException on error
+     */
+    public void countFeatures(DataStore datastore, Query query, int i) throws IOException {
+        SimpleFeatureSource source = datastore.getFeatureSource(query.getTypeName());
+        if (datastore instanceof GeoMesaDataStore) {
+            // geomesa data stores can estimate counts from the cached data statistics, without scanning any data
+            long start = System.currentTimeMillis();
+            int estimate = source.getCount(withHint(query, QueryHints.EXACT_COUNT(), Boolean.FALSE));
+            System.out.println("Estimated count from stats: " + estimate + " in " +
+                               (System.currentTimeMillis() - start) + "ms");
+        }
+        // exact counts are calculated in the data store where possible, so features aren't sent back to us
+        QuickStartMetrics.QueryEvent event = new QuickStartMetrics.QueryEvent();
+        event.typeName = query.getTypeName();
+        event.filter = ECQL.toCQL(query.getFilter());
+        event.begin();
+        long start = System.currentTimeMillis();
+        long nanos = System.nanoTime();
+        int exact = source.getCount(withHint(query, QueryHints.EXACT_COUNT(), Boolean.TRUE));
+        long elapsed = System.currentTimeMillis() - start;
+        if (exact < 0) {
+            System.out.println("Data store can't count features without returning them");
+        } else {
+            String[] tags = new String[] { "type", query.getTypeName(), "query", Integer.toString(i) };
+            metrics.timer("query", tags).record(System.nanoTime() - nanos, TimeUnit.NANOSECONDS);
+            event.features = exact;
+            event.commit();
+            report.query(i, QueryLoadGenerator.describe(query), exact, elapsed);
+            System.out.println("Exact count: " + exact + " in " + elapsed + "ms");
+        }
+        // for comparison, time counting the features by returning all of them
+        long[] full = compareToFullIteration(datastore, query, i);
+        if (exact < 0) {
+            // the count had to be done by returning the features, so record that instead
+            report.query(i, QueryLoadGenerator.describe(query), full[0], full[1]);
+        }
+        System.out.println();
+    }
+
+    /**
+     * Times reading all the features from a query, for comparison with the count and limit query modes
+     *
+     * @param datastore data store
+     * @param query query, any limit will be removed
+     * @param i query number, used for the report
+     * @return number of features returned and the time taken, in millis
+     * @throws IOException on error
+     */
+    private long[] compareToFullIteration(DataStore datastore, Query query, int i) throws IOException {
+        Query full = new Query(query);
+        full.setMaxFeatures(Query.DEFAULT_MAX);
+        long start = System.currentTimeMillis();
+        long n = 0;
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                 datastore.getFeatureReader(full, Transaction.AUTO_COMMIT)) {
+            while (reader.hasNext()) {
+                reader.next();
+                n++;
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        report.put("query." + i + ".full.features", n);
+        report.put("query." + i + ".full.ms", elapsed);
+        System.out.println("Full iteration returned " + n + " features in " + elapsed + "ms");
+        return new long[] { n, elapsed };
+    }
+
+    private static Query withHint(Query query, Object key, Object value) {
+        Query copy = new Query(query);
+        // copy the hints, so that we don't modify the original query
+        Hints hints = new Hints(query.getHints());
+        hints.put(key, value);
+        copy.setHints(hints);
+        return copy;
+    }
+
+    /**
+     * Runs the queries concurrently and reports latency percentiles for each one. Enabled through the
+     * 'query-load' command-line option.
+     *
+     * @param datastore data store
+     * @param queries queries to run
+     * @throws IOException on error
+     */
+    public void generateQueryLoad(DataStore datastore, List<Query> queries) throws IOException {
+        QueryLoadGenerator generator =
+              new QueryLoadGenerator(datastore, queries, queryThreads, queryRate,
+                                     TimeUnit.SECONDS.toMillis(queryDuration), TimeUnit.SECONDS.toMillis(queryWarmup));
+        List<Histogram> latencies = generator.run();
+        for (int i = 0; i < queries.size(); i++) {
+            report.query(i, QueryLoadGenerator.describe(queries.get(i)), latencies.get(i), generator.getErrors()[i]);
         }
     }
 
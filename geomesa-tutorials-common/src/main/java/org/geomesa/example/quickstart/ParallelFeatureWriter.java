@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.quickstart;
+
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.FeatureWriter;
+import org.geotools.api.data.Transaction;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits a stream of features across multiple feature writers, each running on its own thread
+ * with its own appending writer. Features are handed off to the writers in small chunks through
+ * a bounded queue, so the calling thread only stays ahead of the writers by a fixed amount.
+ */
+public class ParallelFeatureWriter {
+
+    /**
+     * Callback used to write a single feature to an appending writer
+     */
+    @FunctionalInterface
+    public interface FeatureCopier {
+        void write(FeatureWriter<SimpleFeatureType, SimpleFeature> writer, SimpleFeature feature) throws IOException;
+    }
+
+    // number of features handed to a writer thread at once
+    private static final int CHUNK_SIZE = 100;
+
+    // marker used to tell the writer threads that there are no more features
+    private static final List<SimpleFeature> END = new ArrayList<>(0);
+
+    private final DataStore datastore;
+    private final SimpleFeatureType sft;
+    private final int writers;
+    private final FeatureCopier copier;
+
+    public ParallelFeatureWriter(DataStore datastore, SimpleFeatureType sft, int writers, FeatureCopier copier) {
+        if (writers < 1) {
+            throw new IllegalArgumentException("Number of writers must be positive: " + writers);
+        }
+        this.datastore = datastore;
+        this.sft = sft;
+        this.writers = writers;
+        this.copier = copier;
+    }
+
+    /**
+     * Writes the features, blocking until all writers have finished
+     *
+     * @param features features to write
+     * @return total number of features written successfully
+     * @throws IOException if any writer could not be opened or closed
+     */
+    public long write(Iterator<SimpleFeature> features) throws IOException {
+        BlockingQueue<List<SimpleFeature>> queue = new ArrayBlockingQueue<>(writers * 4);
+        AtomicInteger running = new AtomicInteger(writers);
+        CountDownLatch done = new CountDownLatch(writers);
+
+        WriterTask[] tasks = new WriterTask[writers];
+        Thread[] threads = new Thread[writers];
+        for (int i = 0; i < writers; i++) {
+            tasks[i] = new WriterTask(i, queue, running, done);
+            threads[i] = new Thread(tasks[i], "feature-writer-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+
+        long start = System.nanoTime();
+        boolean complete = false;
+        try {
+            List<SimpleFeature> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (features.hasNext() && running.get() > 0) {
+                chunk.add(features.next());
+                if (chunk.size() == CHUNK_SIZE) {
+                    offer(queue, chunk, running);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                offer(queue, chunk, running);
+            }
+            complete = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing features", e);
+        } finally {
+            // always stop the writers, even if reading the features failed, so that their writers get closed
+            stop(queue, running, done, threads, complete);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long written = 0;
+        long errors = 0;
+        IOException failure = null;
+        for (WriterTask task : tasks) {
+            written += task.written;
+            errors += task.errors;
+            System.out.println("Writer " + task.id + ": wrote " + task.written + " features with " + task.errors +
+                               " errors in " + TimeUnit.NANOSECONDS.toMillis(task.elapsed) + "ms " +
+                               rate(task.written, task.elapsed));
+            if (task.failure != null) {
+                if (failure == null) {
+                    failure = new IOException("Error writing features", task.failure);
+                } else {
+                    failure.addSuppressed(task.failure);
+                }
+            }
+        }
+        System.out.println("Wrote " + written + " features with " + errors + " errors using " + writers +
+                           " writers in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms " + rate(written, elapsed));
+
+        if (failure != null) {
+            throw failure;
+        }
+        return written;
+    }
+
+    /**
+     * Tells the writer threads that there are no more features, and waits for them to close their writers.
+     * If the features were not read to completion, any queued chunks are dropped; if the calling thread
+     * has been interrupted, the writer threads are interrupted instead
+     */
+    private static void stop(BlockingQueue<List<SimpleFeature>> queue,
+                             AtomicInteger running,
+                             CountDownLatch done,
+                             Thread[] threads,
+                             boolean complete) {
+        boolean interrupted = Thread.interrupted();
+        if (!complete) {
+            queue.clear();
+        }
+        if (!interrupted) {
+            try {
+                for (int i = 0; i < threads.length; i++) {
+                    offer(queue, END, running);
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Put a chunk on the queue, giving up if all the writers have stopped
+     */
+    private static void offer(BlockingQueue<List<SimpleFeature>> queue,
+                              List<SimpleFeature> chunk,
+                              AtomicInteger running) throws InterruptedException {
+        while (running.get() > 0 && !queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            // wait for the writers to catch up
+        }
+    }
+
+    private static String rate(long count, long nanos) {
+        if (nanos <= 0) {
+            return "(n/a features/sec)";
+        }
+        return String.format("(%.0f features/sec)", count * 1_000_000_000d / nanos);
+    }
+
+    private class WriterTask implements Runnable {
+
+        private final int id;
+        private final BlockingQueue<List<SimpleFeature>> queue;
+        private final AtomicInteger running;
+        private final CountDownLatch done;
+
+        // read by the calling thread only after the latch has been released
+        private long written = 0;
+        private long errors = 0;
+        private long elapsed = 0;
+        private Exception failure = null;
+
+        WriterTask(int id, BlockingQueue<List<SimpleFeature>> queue, AtomicInteger running, CountDownLatch done) {
+            this.id = id;
+            this.queue = queue;
+            this.running = running;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            // each thread gets its own writer - geotools feature writers are not thread-safe
+            try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                     datastore.getFeatureWriterAppend(sft.getTypeName(), Transaction.AUTO_COMMIT)) {
+                List<SimpleFeature> chunk = queue.take();
+                while (chunk != END) {
+                    for (SimpleFeature feature : chunk) {
+                        try {
+                            copier.write(writer, feature);
+                            written++;
+                        } catch (Exception e) {
+                            if (errors++ == 0) {
+                                // print the first error from each writer - later ones are only counted
+                                System.err.println("Writer " + id + ": error writing feature '" + feature.getID() +
+                                                   "' (further errors will only be counted):");
+                                e.printStackTrace();
+                            }
+                        }
+                    }
+                    chunk = queue.take();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            } catch (Exception e) {
+                // failed to open or close (flush) the writer
+                failure = e;
+            } finally {
+                elapsed = System.nanoTime() - start;
+                running.decrementAndGet();
+                done.countDown();
+            }
+        }
+    }
+}
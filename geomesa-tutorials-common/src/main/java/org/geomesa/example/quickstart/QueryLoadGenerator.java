@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.quickstart;
+
+import org.HdrHistogram.Histogram;
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.FeatureReader;
+import org.geotools.api.data.Query;
+import org.geotools.api.data.Transaction;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.filter.text.ecql.ECQL;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a set of queries concurrently from multiple threads, and reports latency percentiles for each query.
+ *
+ * Queries are issued round-robin. When a target rate is set, each query is assigned an intended start time
+ * on a fixed schedule, and latency is measured from that intended time rather than from when the query
+ * was actually sent. This way, time spent waiting behind slow queries counts against the result, instead
+ * of being hidden (i.e. coordinated omission).
+ */
+public class QueryLoadGenerator {
+
+    // highest latency that can be recorded, in microseconds
+    private static final long MAX_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final DataStore datastore;
+    private final List<Query> queries;
+    private final int threads;
+    private final int queriesPerSecond;
+    private final long durationMillis;
+    private final long warmupMillis;
+
+    private long[] errors = null;
+
+    /**
+     * @param datastore data store
+     * @param queries queries to run
+     * @param threads number of threads issuing queries
+     * @param queriesPerSecond target total rate across all threads, or 0 to run as fast as possible
+     * @param durationMillis length of the measured run, not including warm-up
+     * @param warmupMillis length of the warm-up, during which results are not recorded
+     */
+    public QueryLoadGenerator(DataStore datastore,
+                              List<Query> queries,
+                              int threads,
+                              int queriesPerSecond,
+                              long durationMillis,
+                              long warmupMillis) {
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("No queries to run");
+        } else if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        } else if (queriesPerSecond < 0) {
+            throw new IllegalArgumentException("Query rate must not be negative: " + queriesPerSecond);
+        }
+        this.datastore = datastore;
+        this.queries = queries;
+        this.threads = threads;
+        this.queriesPerSecond = queriesPerSecond;
+        this.durationMillis = durationMillis;
+        this.warmupMillis = warmupMillis;
+    }
+
+    /**
+     * Runs the queries, blocking until the run is complete, and prints the results
+     *
+     * @return latency histograms, in microseconds, one per query
+     * @throws IOException if interrupted
+     */
+    public List<Histogram> run() throws IOException {
+        System.out.println("Running " + queries.size() + " queries with " + threads + " threads" +
+                           (queriesPerSecond > 0 ? " at " + queriesPerSecond + " queries/sec" : "") + " for " +
+                           TimeUnit.MILLISECONDS.toSeconds(durationMillis) + "s after a " +
+                           TimeUnit.MILLISECONDS.toSeconds(warmupMillis) + "s warm-up");
+
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+        long end = measureStart + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        long interval = queriesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / queriesPerSecond : 0L;
+
+        AtomicLong tickets = new AtomicLong(0);
+        CountDownLatch done = new CountDownLatch(threads);
+        // tracks which queries have had a failure printed, so that only the first one is shown
+        AtomicIntegerArray reported = new AtomicIntegerArray(queries.size());
+        LoadTask[] tasks = new LoadTask[threads];
+        for (int i = 0; i < threads; i++) {
+            tasks[i] = new LoadTask(tickets, start, measureStart, end, interval, reported, done);
+            Thread thread = new Thread(tasks[i], "query-load-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running queries", e);
+        }
+
+        // merge the per-thread histograms
+        List<Histogram> results = new ArrayList<>(queries.size());
+        errors = new long[queries.size()];
+        for (int q = 0; q < queries.size(); q++) {
+            Histogram histogram = new Histogram(MAX_LATENCY_MICROS, 3);
+            for (LoadTask task : tasks) {
+                histogram.add(task.histograms[q]);
+                errors[q] += task.errors[q];
+            }
+            results.add(histogram);
+        }
+
+        long total = 0;
+        System.out.println();
+        for (int q = 0; q < queries.size(); q++) {
+            Histogram h = results.get(q);
+            total += h.getTotalCount();
+            System.out.println("Query " + q + ": " + describe(queries.get(q)));
+            System.out.println(String.format("  count=%d errors=%d mean=%.2fms p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms",
+                                             h.getTotalCount(), errors[q], h.getMean() / 1000d,
+                                             millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(95)),
+                                             millis(h.getValueAtPercentile(99)), millis(h.getMaxValue())));
+        }
+        System.out.println(String.format("Completed %d queries (%.1f queries/sec)", total,
+                                         total * 1000d / Math.max(1L, durationMillis)));
+        System.out.println();
+        return results;
+    }
+
+    /**
+     * Number of failed queries in the last run, by query
+     *
+     * @return errors, or null if not run yet
+     */
+    public long[] getErrors() {
+        return errors;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000d;
+    }
+
+    static String describe(Query query) {
+        String description = ECQL.toCQL(query.getFilter());
+        if (query.getPropertyNames() != null) {
+            description += " returning " + Arrays.asList(query.getPropertyNames());
+        }
+        return description;
+    }
+
+    private class LoadTask implements Runnable {
+
+        private final AtomicLong tickets;
+        private final long start;
+        private final long measureStart;
+        private final long end;
+        private final long interval;
+        private final AtomicIntegerArray reported;
+        private final CountDownLatch done;
+
+        // each thread records to its own histograms, which are merged after the latch has been released
+        private final Histogram[] histograms = new Histogram[queries.size()];
+        private final long[] errors = new long[queries.size()];
+
+        LoadTask(AtomicLong tickets,
+                 long start,
+                 long measureStart,
+                 long end,
+                 long interval,
+                 AtomicIntegerArray reported,
+                 CountDownLatch done) {
+            this.tickets = tickets;
+            this.start = start;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.interval = interval;
+            this.reported = reported;
+            this.done = done;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new Histogram(MAX_LATENCY_MICROS, 3);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    long ticket = tickets.getAndIncrement();
+                    long intended;
+                    if (interval > 0) {
+                        intended = start + ticket * interval;
+                        if (intended >= end) {
+                            break;
+                        }
+                        long wait;
+                        while ((wait = intended - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    } else {
+                        intended = System.nanoTime();
+                        if (intended >= end) {
+                            break;
+                        }
+                    }
+                    int q = (int) (ticket % queries.size());
+                    boolean success = execute(q);
+                    long latency = System.nanoTime() - intended;
+                    if (intended >= measureStart) {
+                        if (success) {
+                            histograms[q].recordValue(Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(latency)));
+                        } else {
+                            errors[q]++;
+                        }
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private boolean execute(int q) {
+            Query query = queries.get(q);
+            // copy the query, as the data store may modify it with hints
+            try (FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                     datastore.getFeatureReader(new Query(query), Transaction.AUTO_COMMIT)) {
+                // read all the results, as would a real client
+                while (reader.hasNext()) {
+                    reader.next();
+                }
+                return true;
+            } catch (Exception e) {
+                if (reported.compareAndSet(q, 0, 1)) {
+                    // print the first failure of each query - later ones are only counted
+                    System.err.println("Query " + q + " failed (further errors will only be counted): " +
+                                       describe(query));
+                    e.printStackTrace();
+                }
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.quickstart;
+
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.FeatureReader;
+import org.geotools.api.data.Query;
+import org.geotools.api.data.Transaction;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.filter.text.ecql.ECQL;
+import org.locationtech.geomesa.index.geotools.GeoMesaDataStore;
+import org.locationtech.geomesa.index.utils.ExplainString;
+import scala.Option;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query plan and timing information for a single query. For GeoMesa data stores, this includes the query
+ * planner's explanation of the index used, the ranges scanned, and any server-side filtering and transforms.
+ */
+public class QueryProfile {
+
+    private final Query query;
+    private final String explain;
+    private final int plans;
+    private final long planningNanos;
+    private final long firstFeatureNanos;
+    private final long totalNanos;
+    private final long features;
+
+    private QueryProfile(Query query,
+                         String explain,
+                         int plans,
+                         long planningNanos,
+                         long firstFeatureNanos,
+                         long totalNanos,
+                         long features) {
+        this.query = query;
+        this.explain = explain;
+        this.plans = plans;
+        this.planningNanos = planningNanos;
+        this.firstFeatureNanos = firstFeatureNanos;
+        this.totalNanos = totalNanos;
+        this.features = features;
+    }
+
+    /**
+     * Plans and runs a query, reading all the results
+     *
+     * @param datastore data store
+     * @param query query
+     * @return profile
+     * @throws IOException on error
+     */
+    public static QueryProfile run(DataStore datastore, Query query) throws IOException {
+        String explain = null;
+        int plans = -1;
+        long planningNanos = -1L;
+        if (datastore instanceof GeoMesaDataStore) {
+            // capture the query planner output - the index isn't specified, so it will be picked the same way
+            // as when running the query normally
+            ExplainString explainer = new ExplainString();
+            long start = System.nanoTime();
+            plans = ((GeoMesaDataStore<?>) datastore).getQueryPlan(new Query(query), Option.empty(), explainer).size();
+            planningNanos = System.nanoTime() - start;
+            explain = explainer.toString();
+        }
+
+        long firstFeatureNanos = -1L;
+        long features = 0;
+        long start = System.nanoTime();
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                 datastore.getFeatureReader(new Query(query), Transaction.AUTO_COMMIT)) {
+            while (reader.hasNext()) {
+                reader.next();
+                if (features++ == 0) {
+                    firstFeatureNanos = System.nanoTime() - start;
+                }
+            }
+        }
+        long totalNanos = System.nanoTime() - start;
+
+        return new QueryProfile(query, explain, plans, planningNanos, firstFeatureNanos, totalNanos, features);
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    /**
+     * The query planner explanation
+     *
+     * @return explanation, or null if the data store is not a GeoMesa data store
+     */
+    public String getExplain() {
+        return explain;
+    }
+
+    /**
+     * @return number of query plans, or -1 if the data store is not a GeoMesa data store
+     */
+    public int getPlans() {
+        return plans;
+    }
+
+    /**
+     * @return time spent planning the query, or -1 if the data store is not a GeoMesa data store
+     */
+    public long getPlanningMillis() {
+        return planningNanos < 0 ? -1L : TimeUnit.NANOSECONDS.toMillis(planningNanos);
+    }
+
+    /**
+     * @return time from submitting the query until the first feature was returned, or -1 if no features matched
+     */
+    public long getFirstFeatureMillis() {
+        return firstFeatureNanos < 0 ? -1L : TimeUnit.NANOSECONDS.toMillis(firstFeatureNanos);
+    }
+
+    /**
+     * @return time from submitting the query until the last feature was returned
+     */
+    public long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+    }
+
+    public long getFeatures() {
+        return features;
+    }
+
+    /**
+     * Formats the profile as a multi-line report
+     *
+     * @return report
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append("Query profile\n");
+        report.append("  type:          ").append(query.getTypeName()).append('\n');
+        report.append("  filter:        ").append(ECQL.toCQL(query.getFilter())).append('\n');
+        if (query.getPropertyNames() != null) {
+            report.append("  attributes:    ").append(Arrays.asList(query.getPropertyNames())).append('\n');
+        }
+        if (plans >= 0) {
+            report.append("  plans:         ").append(plans).append('\n');
+            report.append("  planning:      ").append(getPlanningMillis()).append("ms\n");
+        }
+        report.append("  first feature: ").append(firstFeatureNanos < 0 ? "n/a" : getFirstFeatureMillis() + "ms").append('\n');
+        report.append("  total scan:    ").append(getTotalMillis()).append("ms\n");
+        report.append("  features:      ").append(features).append('\n');
+        if (explain != null) {
+            report.append("  explain:\n");
+            for (String line : explain.split("\n")) {
+                report.append("    ").append(line).append('\n');
+            }
+        }
+        return report.toString();
+    }
+
+    @Override
+    public String toString() {
+        return report();
+    }
+}
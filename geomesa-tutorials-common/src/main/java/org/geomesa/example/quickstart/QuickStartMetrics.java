@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.quickstart;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics and JFR events for the quickstarts. Metrics are published in Prometheus format, either to a
+ * local file that is rewritten periodically (e.g. for the node_exporter textfile collector), or through
+ * an HTTP endpoint at '/metrics'.
+ *
+ * When neither output is configured, meters are no-ops. JFR events are always emitted, but cost
+ * almost nothing unless a flight recording is running.
+ */
+public class QuickStartMetrics implements Closeable {
+
+    public static final String PREFIX = "geomesa.quickstart.";
+
+    // how often the metrics file is rewritten
+    private static final long FILE_INTERVAL_SECONDS = 10;
+
+    private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
+    private final PrometheusMeterRegistry prometheus;
+    private final JvmGcMetrics gc;
+    private final Path file;
+    private final ScheduledExecutorService executor;
+    private final HttpServer server;
+
+    /**
+     * Creates a metrics instance that doesn't publish anything
+     *
+     * @return metrics
+     */
+    public static QuickStartMetrics disabled() {
+        try {
+            return new QuickStartMetrics(null, -1);
+        } catch (IOException e) {
+            // can't happen, as no file or server is used
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param file file to write Prometheus metrics to, or null
+     * @param port port to serve Prometheus metrics on, or a negative value
+     * @throws IOException if the server can't be started
+     */
+    public QuickStartMetrics(Path file, int port) throws IOException {
+        this.file = file;
+        if (file == null && port < 0) {
+            prometheus = null;
+            gc = null;
+            executor = null;
+            server = null;
+        } else {
+            prometheus = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            registry.add(prometheus);
+            // track gc and memory, to see the impact of the ingest and query loops
+            gc = new JvmGcMetrics();
+            gc.bindTo(registry);
+            new JvmMemoryMetrics().bindTo(registry);
+            if (file == null) {
+                executor = null;
+            } else {
+                executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "metrics-file-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                executor.scheduleWithFixedDelay(this::writeFileQuietly, FILE_INTERVAL_SECONDS,
+                                                FILE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            }
+            if (port < 0) {
+                server = null;
+            } else {
+                server = HttpServer.create(new InetSocketAddress(port), 0);
+                server.createContext("/metrics", exchange -> {
+                    byte[] bytes = prometheus.scrape().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, bytes.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(bytes);
+                    }
+                });
+                server.start();
+                System.out.println("Serving metrics at http://localhost:" + server.getAddress().getPort() + "/metrics");
+            }
+        }
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Gets a timer
+     *
+     * @param name name, without the common prefix
+     * @param tags tag keys and values
+     * @return timer
+     */
+    public Timer timer(String name, String... tags) {
+        return Timer.builder(PREFIX + name).tags(tags).register(registry);
+    }
+
+    /**
+     * Gets a counter
+     *
+     * @param name name, without the common prefix
+     * @param tags tag keys and values
+     * @return counter
+     */
+    public Counter counter(String name, String... tags) {
+        return Counter.builder(PREFIX + name).tags(tags).register(registry);
+    }
+
+    /**
+     * Writes the current metrics to the metrics file, if one is configured
+     *
+     * @throws IOException on error
+     */
+    public void writeFile() throws IOException {
+        if (file != null) {
+            // write to a temp file and move it into place, so that readers never see a partial file
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tmp, prometheus.scrape().getBytes(StandardCharsets.UTF_8));
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    private void writeFileQuietly() {
+        try {
+            writeFile();
+        } catch (IOException e) {
+            System.err.println("Exception writing metrics file: " + e.toString());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+        try {
+            // write out the final values
+            writeFile();
+        } finally {
+            if (gc != null) {
+                gc.close();
+            }
+            registry.close();
+        }
+    }
+
+    /**
+     * JFR event for a single step of a quickstart, such as creating the data store or schema
+     */
+    @Name("org.geomesa.example.Phase")
+    @Label("Quickstart Phase")
+    @Category({"GeoMesa", "Tutorials"})
+    @Description("A step in running a quickstart")
+    public static class PhaseEvent extends Event {
+
+        @Label("Phase")
+        public String phase;
+
+        @Label("Type Name")
+        public String typeName;
+    }
+
+    /**
+     * JFR event for writing a group of features
+     */
+    @Name("org.geomesa.example.Write")
+    @Label("Feature Write")
+    @Category({"GeoMesa", "Tutorials"})
+    @Description("Features written to a data store")
+    public static class WriteEvent extends Event {
+
+        @Label("Type Name")
+        public String typeName;
+
+        @Label("Features")
+        public long features;
+    }
+
+    /**
+     * JFR event for a single query
+     */
+    @Name("org.geomesa.example.Query")
+    @Label("Feature Query")
+    @Category({"GeoMesa", "Tutorials"})
+    @Description("A query against a data store")
+    public static class QueryEvent extends Event {
+
+        @Label("Type Name")
+        public String typeName;
+
+        @Label("Filter")
+        public String filter;
+
+        @Label("Features")
+        public long features;
+    }
+
+    /**
+     * JFR event for a feature event received by a listener
+     */
+    @Name("org.geomesa.example.FeatureEvent")
+    @Label("Feature Event")
+    @Category({"GeoMesa", "Tutorials"})
+    @Description("A feature event received by a feature listener")
+    public static class ListenerEvent extends Event {
+
+        @Label("Type Name")
+        public String typeName;
+
+        @Label("Event Type")
+        public String eventType;
+    }
+}
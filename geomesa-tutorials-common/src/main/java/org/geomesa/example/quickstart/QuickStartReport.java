@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.quickstart;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Machine-readable summary of a quickstart run, written as a properties file so that runs against
+ * different backends can be compared (see the benchmark matrix runner). Keys:
+ *
+ * <ul>
+ *     <li>datastore - data store class</li>
+ *     <li>type - feature type name</li>
+ *     <li>ingest.features, ingest.millis - number of features written, and the time taken</li>
+ *     <li>ingest.copy.millis - time taken to write the features through a feature writer, with the
+ *         'write-comparison' option (ingest.millis is then the time taken to write them in batches)</li>
+ *     <li>query.count - number of queries</li>
+ *     <li>query.N.name - description of query N</li>
+ *     <li>query.N.count, query.N.errors - number of times query N completed or failed</li>
+ *     <li>query.N.mean.ms, query.N.p50.ms, query.N.p95.ms, query.N.p99.ms, query.N.max.ms - latencies of query N</li>
+ *     <li>query.N.features - number of features returned (or counted) by query N, when each query is only run once</li>
+ *     <li>query.N.full.features, query.N.full.ms - number of features and time taken to read all the results of
+ *         query N, for comparison in the 'count' and 'limit' query modes</li>
+ * </ul>
+ */
+public class QuickStartReport {
+
+    private final Properties properties = new Properties();
+
+    public void put(String key, Object value) {
+        properties.setProperty(key, String.valueOf(value));
+    }
+
+    public String get(String key) {
+        return properties.getProperty(key);
+    }
+
+    /**
+     * Copies all the entries from another report, e.g. to combine the results of several runs
+     *
+     * @param other report to copy
+     */
+    public void putAll(QuickStartReport other) {
+        properties.putAll(other.properties);
+    }
+
+    /**
+     * Records the result of a write
+     *
+     * @param features number of features written
+     * @param millis time taken
+     */
+    public void ingest(long features, long millis) {
+        put("ingest.features", features);
+        put("ingest.millis", millis);
+    }
+
+    /**
+     * Records the result of a single query run
+     *
+     * @param i query number
+     * @param name query description
+     * @param features number of features returned
+     * @param millis time taken
+     */
+    public void query(int i, String name, long features, long millis) {
+        put("query.count", Math.max(i + 1, Integer.parseInt(properties.getProperty("query.count", "0"))));
+        put("query." + i + ".name", name);
+        put("query." + i + ".count", 1);
+        put("query." + i + ".errors", 0);
+        put("query." + i + ".features", features);
+        for (String stat : new String[] { "mean", "p50", "p95", "p99", "max" }) {
+            put("query." + i + "." + stat + ".ms", millis);
+        }
+    }
+
+    /**
+     * Records the latencies of a query run repeatedly
+     *
+     * @param i query number
+     * @param name query description
+     * @param latencies latency histogram, in microseconds
+     * @param errors number of failed queries
+     */
+    public void query(int i, String name, Histogram latencies, long errors) {
+        put("query.count", Math.max(i + 1, Integer.parseInt(properties.getProperty("query.count", "0"))));
+        put("query." + i + ".name", name);
+        put("query." + i + ".count", latencies.getTotalCount());
+        put("query." + i + ".errors", errors);
+        put("query." + i + ".mean.ms", latencies.getMean() / 1000d);
+        put("query." + i + ".p50.ms", latencies.getValueAtPercentile(50) / 1000d);
+        put("query." + i + ".p95.ms", latencies.getValueAtPercentile(95) / 1000d);
+        put("query." + i + ".p99.ms", latencies.getValueAtPercentile(99) / 1000d);
+        put("query." + i + ".max.ms", latencies.getMaxValue() / 1000d);
+    }
+
+    /**
+     * Writes the report
+     *
+     * @param file file
+     * @throws IOException on error
+     */
+    public void write(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            properties.store(writer, "GeoMesa quickstart report");
+        }
+    }
+
+    /**
+     * Reads a report
+     *
+     * @param file file
+     * @return report
+     * @throws IOException on error
+     */
+    public static QuickStartReport read(Path file) throws IOException {
+        QuickStartReport report = new QuickStartReport();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            report.properties.load(reader);
+        }
+        return report;
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.quickstart;
+
+import org.geomesa.example.data.FeatureSnapshotCache;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.locationtech.geomesa.curve.BinnedTime;
+import org.locationtech.geomesa.curve.TimePeriod;
+import org.locationtech.geomesa.curve.Z2SFC;
+import org.locationtech.geomesa.curve.Z2SFC$;
+import org.locationtech.geomesa.curve.Z3SFC;
+import org.locationtech.geomesa.utils.interop.SimpleFeatureTypes;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import scala.Enumeration;
+import scala.Function1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Sorts features by the GeoMesa Z3 key (time bin, then z-value) of their default geometry and date, or by
+ * the Z2 key if the schema doesn't have a date. Writing features in key order means that each batch of writes
+ * goes to a small number of tablets or regions, instead of being spread across all of them.
+ *
+ * Inputs that are too large to sort in memory are sorted in runs, which are spilled to disk and then merged.
+ */
+public class ZOrderSorter {
+
+    private final SimpleFeatureType sft;
+    private final int bufferSize;
+    private final KeyFunction keys;
+
+    /**
+     * @param sft simple feature type
+     * @param bufferSize max number of features to sort in memory at once
+     */
+    public ZOrderSorter(SimpleFeatureType sft, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.sft = sft;
+        this.bufferSize = bufferSize;
+        Object dtg = sft.getUserData().get(SimpleFeatureTypes.DEFAULT_DATE_KEY);
+        if (dtg != null && sft.indexOf(dtg.toString()) != -1) {
+            this.keys = new Z3Keys(sft, sft.indexOf(dtg.toString()));
+        } else {
+            this.keys = new Z2Keys();
+        }
+    }
+
+    /**
+     * Sorts features in memory
+     *
+     * @param features features
+     * @return sorted features
+     */
+    public List<SimpleFeature> sort(List<SimpleFeature> features) {
+        List<Keyed> keyed = new ArrayList<>(features.size());
+        for (SimpleFeature feature : features) {
+            keyed.add(keys.apply(feature));
+        }
+        keyed.sort(Keyed.ORDER);
+        List<SimpleFeature> sorted = new ArrayList<>(keyed.size());
+        for (Keyed k : keyed) {
+            sorted.add(k.feature);
+        }
+        return sorted;
+    }
+
+    /**
+     * Sorts features, spilling to disk if there are more than will fit in the buffer
+     *
+     * @param features features
+     * @return sorted features, which must be closed after use to clean up any temporary files
+     * @throws IOException on error
+     */
+    public Stream<SimpleFeature> sort(Iterator<SimpleFeature> features) throws IOException {
+        List<SimpleFeature> buffer = new ArrayList<>();
+        while (features.hasNext() && buffer.size() < bufferSize) {
+            buffer.add(features.next());
+        }
+        if (!features.hasNext()) {
+            // everything fits in memory
+            return sort(buffer).stream();
+        }
+
+        Path dir = Files.createTempDirectory("z-sort");
+        List<Path> runs = new ArrayList<>();
+        List<Stream<SimpleFeature>> streams = new ArrayList<>();
+        try {
+            while (!buffer.isEmpty()) {
+                Path run = dir.resolve("run-" + runs.size() + ".avro");
+                FeatureSnapshotCache.write(run, sft, sort(buffer));
+                runs.add(run);
+                buffer.clear();
+                while (features.hasNext() && buffer.size() < bufferSize) {
+                    buffer.add(features.next());
+                }
+            }
+            for (Path run : runs) {
+                streams.add(FeatureSnapshotCache.read(run));
+            }
+        } catch (IOException | RuntimeException e) {
+            cleanup(dir, runs, streams);
+            throw e;
+        }
+
+        Iterator<SimpleFeature> merged = new MergeIterator(streams);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                            .onClose(() -> cleanup(dir, runs, streams));
+    }
+
+    private static void cleanup(Path dir, List<Path> runs, List<Stream<SimpleFeature>> streams) {
+        for (Stream<SimpleFeature> stream : streams) {
+            stream.close();
+        }
+        try {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error cleaning up sorted runs in " + dir + ":", e);
+        }
+    }
+
+    /**
+     * Merges sorted runs, by always taking the lowest key from the head of each run
+     */
+    private class MergeIterator implements Iterator<SimpleFeature> {
+
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(h -> h.current, Keyed.ORDER));
+
+        MergeIterator(List<Stream<SimpleFeature>> runs) {
+            for (Stream<SimpleFeature> run : runs) {
+                Iterator<SimpleFeature> iterator = run.iterator();
+                if (iterator.hasNext()) {
+                    heads.add(new Head(iterator, keys.apply(iterator.next())));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public SimpleFeature next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            SimpleFeature feature = head.current.feature;
+            if (head.run.hasNext()) {
+                head.current = keys.apply(head.run.next());
+                heads.add(head);
+            }
+            return feature;
+        }
+    }
+
+    private static class Head {
+
+        private final Iterator<SimpleFeature> run;
+        private Keyed current;
+
+        Head(Iterator<SimpleFeature> run, Keyed current) {
+            this.run = run;
+            this.current = current;
+        }
+    }
+
+    /**
+     * A feature with its sort key
+     */
+    private static class Keyed {
+
+        static final Comparator<Keyed> ORDER = (a, b) -> {
+            int cmp = Short.compare(a.bin, b.bin);
+            return cmp != 0 ? cmp : Long.compare(a.z, b.z);
+        };
+
+        private final short bin;
+        private final long z;
+        private final SimpleFeature feature;
+
+        Keyed(short bin, long z, SimpleFeature feature) {
+            this.bin = bin;
+            this.z = z;
+            this.feature = feature;
+        }
+    }
+
+    private interface KeyFunction {
+        Keyed apply(SimpleFeature feature);
+    }
+
+    /**
+     * Z3 keys, using the same time period as the GeoMesa Z3 index for the schema
+     */
+    private static class Z3Keys implements KeyFunction {
+
+        private final int dtgIndex;
+        private final Z3SFC sfc;
+        private final Function1<Object, BinnedTime> toBinnedTime;
+
+        Z3Keys(SimpleFeatureType sft, int dtgIndex) {
+            this.dtgIndex = dtgIndex;
+            Object interval = sft.getUserData().get("geomesa.z3.interval");
+            Enumeration.Value period = interval == null ? TimePeriod.Week() : TimePeriod.withName(interval.toString());
+            this.sfc = Z3SFC.apply(period);
+            this.toBinnedTime = BinnedTime.timeToBinnedTime(period);
+        }
+
+        @Override
+        public Keyed apply(SimpleFeature feature) {
+            double[] xy = xy(feature);
+            Date date = (Date) feature.getAttribute(dtgIndex);
+            if (xy == null || date == null) {
+                // sort features that can't be indexed to the end
+                return new Keyed(Short.MAX_VALUE, Long.MAX_VALUE, feature);
+            }
+            BinnedTime binned = toBinnedTime.apply(date.getTime());
+            return new Keyed(binned.bin(), sfc.index(xy[0], xy[1], binned.offset(), true), feature);
+        }
+    }
+
+    /**
+     * Z2 keys, for schemas without a date
+     */
+    private static class Z2Keys implements KeyFunction {
+
+        private final Z2SFC sfc = Z2SFC$.MODULE$;
+
+        @Override
+        public Keyed apply(SimpleFeature feature) {
+            double[] xy = xy(feature);
+            if (xy == null) {
+                return new Keyed(Short.MAX_VALUE, Long.MAX_VALUE, feature);
+            }
+            return new Keyed((short) 0, sfc.index(xy[0], xy[1], true), feature);
+        }
+    }
+
+    /**
+     * Gets the point used for the key - the point itself, or the center of the envelope for other geometries
+     */
+    private static double[] xy(SimpleFeature feature) {
+        Geometry geom = (Geometry) feature.getDefaultGeometry();
+        if (geom == null || geom.isEmpty()) {
+            return null;
+        } else if (geom instanceof Point) {
+            return new double[] { ((Point) geom).getX(), ((Point) geom).getY() };
+        }
+        Envelope env = geom.getEnvelopeInternal();
+        return new double[] { (env.getMinX() + env.getMaxX()) / 2, (env.getMinY() + env.getMaxY()) / 2 };
+    }
+}
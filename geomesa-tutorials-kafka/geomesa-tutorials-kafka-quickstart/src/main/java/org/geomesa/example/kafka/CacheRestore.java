@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.kafka;
+
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.FeatureListener;
+import org.geotools.api.data.SimpleFeatureSource;
+import org.geotools.data.simple.SimpleFeatureIterator;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Restores the live cache of a consumer data store from its topic, and measures how long it takes until the
+ * cache can serve queries, and how much memory it uses. The data store must be configured to read back
+ * existing messages, through the 'kafka.consumer.read-back' parameter.
+ *
+ * With read-back, queries wait until the existing messages have been loaded. Events for the loaded messages
+ * are also tracked, and the cache is considered ready once the first query has returned and no events have
+ * been received for a short quiet period.
+ */
+public class CacheRestore {
+
+    // time without events after which the restore is considered complete
+    private static final long QUIET_MILLIS = 500L;
+
+    private final String typeName;
+    private final long features;
+    private final long events;
+    private final long millis;
+    private final long heapBytes;
+    private final boolean complete;
+
+    private CacheRestore(String typeName, long features, long events, long millis, long heapBytes, boolean complete) {
+        this.typeName = typeName;
+        this.features = features;
+        this.events = events;
+        this.millis = millis;
+        this.heapBytes = heapBytes;
+        this.complete = complete;
+    }
+
+    /**
+     * Restores the cache for a schema, blocking until it is ready
+     *
+     * @param consumer consumer data store, configured with read-back
+     * @param typeName schema to restore
+     * @param timeoutMillis max time to wait for the restore to complete
+     * @return result of the restore
+     * @throws IOException on error
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static CacheRestore restore(DataStore consumer, String typeName, long timeoutMillis)
+          throws IOException, InterruptedException {
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long quiet = TimeUnit.MILLISECONDS.toNanos(QUIET_MILLIS);
+
+        AtomicLong events = new AtomicLong(0);
+        AtomicLong lastEvent = new AtomicLong(start);
+        FeatureListener listener = event -> {
+            lastEvent.set(System.nanoTime());
+            events.incrementAndGet();
+        };
+        SimpleFeatureSource source = consumer.getFeatureSource(typeName);
+        source.addFeatureListener(listener);
+        try {
+            count(source);
+            long queried = System.nanoTime();
+            while (System.nanoTime() - lastEvent.get() < quiet && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            boolean complete = System.nanoTime() - lastEvent.get() >= quiet;
+            long ready = Math.max(queried, lastEvent.get());
+            long features = count(source);
+            long heapBytes = usedHeap() - heapBefore;
+            return new CacheRestore(typeName, features, events.get(), TimeUnit.NANOSECONDS.toMillis(ready - start),
+                                    heapBytes, complete);
+        } finally {
+            source.removeFeatureListener(listener);
+        }
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    /**
+     * @return number of features in the cache once restored
+     */
+    public long getFeatures() {
+        return features;
+    }
+
+    /**
+     * @return number of events received while restoring, i.e. messages read back from the topic
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    /**
+     * @return time until the cache was ready to serve queries
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * @return growth in used heap after restoring, which is approximately the size of the cache
+     */
+    public long getHeapBytes() {
+        return heapBytes;
+    }
+
+    /**
+     * @return false if the restore timed out while messages were still being received
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Summary of the restore
+     *
+     * @return summary
+     */
+    public String report() {
+        return String.format("Restored %d features for schema '%s' from %d messages in %dms%s, using %.1f MB of heap",
+                             features, typeName, events, millis, complete ? "" : " (timed out)",
+                             heapBytes / (1024d * 1024d));
+    }
+
+    private static long count(SimpleFeatureSource source) throws IOException {
+        long count = 0;
+        try (SimpleFeatureIterator iterator = source.getFeatures().features()) {
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        // gc isn't guaranteed to run, so request it a few times
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
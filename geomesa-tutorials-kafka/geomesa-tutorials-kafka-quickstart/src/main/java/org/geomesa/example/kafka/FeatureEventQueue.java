@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.kafka;
+
+import org.geotools.api.data.FeatureEvent;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands feature events off from the Kafka consumer thread to a dedicated worker thread, which processes
+ * them in batches. This keeps slow event handling (e.g. console output) from stalling the consumer.
+ *
+ * The queue is bounded - when it fills up, the overflow policy determines whether the consumer waits for
+ * space, or events are dropped.
+ */
+public class FeatureEventQueue implements Closeable {
+
+    /**
+     * What to do when events arrive faster than they can be processed
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * Block the consumer thread until there is space in the queue. No events are lost, but the consumer
+         * falls behind the topic.
+         */
+        BLOCK,
+
+        /**
+         * Drop the oldest queued event to make space for the new one, favoring recent events
+         */
+        DROP_OLDEST,
+
+        /**
+         * Once the queue is half full, only queue one out of every 'sample rate' events, dropping the rest.
+         * Events are dropped if the queue is completely full.
+         */
+        SAMPLE;
+
+        /**
+         * Parses a policy, ignoring case and allowing dashes in place of underscores
+         *
+         * @param name name
+         * @return policy
+         */
+        public static OverflowPolicy parse(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.US).replace('-', '_'));
+        }
+    }
+
+    /**
+     * An event, along with the schema it came from and the time it was received
+     */
+    public static class QueuedEvent {
+
+        private final String typeName;
+        private final FeatureEvent event;
+        private final long receivedNanos;
+
+        QueuedEvent(String typeName, FeatureEvent event, long receivedNanos) {
+            this.typeName = typeName;
+            this.event = event;
+            this.receivedNanos = receivedNanos;
+        }
+
+        public String getTypeName() {
+            return typeName;
+        }
+
+        public FeatureEvent getEvent() {
+            return event;
+        }
+
+        /**
+         * @return time the event was received, from System.nanoTime
+         */
+        public long getReceivedNanos() {
+            return receivedNanos;
+        }
+    }
+
+    /**
+     * Processes a batch of events, on the worker thread
+     */
+    public interface BatchHandler {
+        void handle(List<QueuedEvent> batch);
+    }
+
+    private final BlockingQueue<QueuedEvent> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final OverflowPolicy policy;
+    private final int sampleRate;
+    private final BatchHandler handler;
+    private final Thread worker;
+
+    private final AtomicLong dropped = new AtomicLong(0);
+    private final AtomicLong processed = new AtomicLong(0);
+    private final AtomicLong sampled = new AtomicLong(0);
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param capacity max number of queued events
+     * @param batchSize max number of events to process at once
+     * @param policy overflow policy
+     * @param sampleRate with the SAMPLE policy, one out of this many events is kept once the queue is half full
+     * @param handler event handler
+     */
+    public FeatureEventQueue(int capacity, int batchSize, OverflowPolicy policy, int sampleRate, BatchHandler handler) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        } else if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        } else if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.policy = policy;
+        this.sampleRate = sampleRate;
+        this.handler = handler;
+        this.worker = new Thread(this::drain, "feature-event-worker");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues an event. Called from the consumer thread.
+     *
+     * @param typeName schema the event came from
+     * @param event event
+     */
+    public void offer(String typeName, FeatureEvent event) {
+        QueuedEvent queued = new QueuedEvent(typeName, event, System.nanoTime());
+        switch (policy) {
+            case BLOCK:
+                try {
+                    queue.put(queued);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                }
+                break;
+
+            case DROP_OLDEST:
+                while (!queue.offer(queued)) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                break;
+
+            case SAMPLE:
+                if (queue.size() >= capacity / 2 && sampled.getAndIncrement() % sampleRate != 0) {
+                    dropped.incrementAndGet();
+                } else if (!queue.offer(queued)) {
+                    dropped.incrementAndGet();
+                }
+                break;
+
+            default:
+                throw new IllegalStateException("Unexpected policy: " + policy);
+        }
+    }
+
+    /**
+     * @return number of events waiting to be processed
+     */
+    public int getDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return number of events dropped due to the overflow policy
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return number of events processed
+     */
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    private void drain() {
+        List<QueuedEvent> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                QueuedEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed) {
+                        break;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                try {
+                    handler.handle(batch);
+                } catch (RuntimeException e) {
+                    // keep the worker alive so that the queue doesn't fill up
+                    System.err.println("Exception handling feature events: " + e.toString());
+                }
+                processed.addAndGet(batch.size());
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the worker thread, after waiting for any queued events to be processed
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            worker.interrupt();
+        }
+    }
+}
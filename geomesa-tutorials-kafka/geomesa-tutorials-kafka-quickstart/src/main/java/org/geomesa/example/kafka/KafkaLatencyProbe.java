@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.kafka;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.geomesa.example.quickstart.CommandLineDataStore;
+import org.geomesa.example.quickstart.QuickStartReport;
+import org.geotools.api.data.DataAccessFactory.Param;
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.DataStoreFinder;
+import org.geotools.api.data.FeatureEvent;
+import org.geotools.api.data.FeatureListener;
+import org.geotools.api.data.FeatureWriter;
+import org.geotools.api.data.SimpleFeatureSource;
+import org.geotools.api.data.Transaction;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.geotools.util.factory.Hints;
+import org.locationtech.geomesa.kafka.data.KafkaDataStoreFactory;
+import org.locationtech.geomesa.kafka.utils.KafkaFeatureEvent.KafkaFeatureChanged;
+import org.locationtech.geomesa.utils.interop.SimpleFeatureTypes;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how long it takes for a feature written through a producer Kafka data store to become visible
+ * in a consumer's feature cache, at increasing write rates.
+ *
+ * Each feature is stamped with the time it is written. A feature listener on the consumer (the same kind
+ * used by KafkaListener) records the time from the stamp to the change event in a histogram. As producer
+ * and consumer run in the same JVM, the stamps don't depend on clock synchronization.
+ */
+public class KafkaLatencyProbe implements Runnable {
+
+    private static final String TYPE_NAME = "kafka-latency-probe";
+
+    // highest latency that can be recorded, in microseconds
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private static final GeometryFactory gf = new GeometryFactory();
+
+    private final Map<String, String> params;
+    private final int[] rates;
+    private final int stepSeconds;
+    private final int drainSeconds;
+    private final int entities;
+    private final boolean cleanup;
+    private final QuickStartReport report = new QuickStartReport();
+
+    public KafkaLatencyProbe(String[] args) throws ParseException {
+        Param[] parameters = new KafkaDataStoreFactory().getParametersInfo();
+        Options options = CommandLineDataStore.createOptions(parameters);
+        options.addOption(Option.builder().longOpt("rates").argName("rates").hasArg()
+                                .desc("Comma-separated write rates to measure, in features per second (default 100,1000,5000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("step-duration").argName("step-duration").hasArg()
+                                .desc("Number of seconds to write at each rate (default 30)")
+                                .build());
+        options.addOption(Option.builder().longOpt("drain").argName("drain").hasArg()
+                                .desc("Number of seconds to wait for outstanding features after each rate (default 5)")
+                                .build());
+        options.addOption(Option.builder().longOpt("entities").argName("entities").hasArg()
+                                .desc("Number of distinct feature IDs to write (default 1000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("cleanup").desc("Delete the probe schema after running").build());
+
+        CommandLine command = CommandLineDataStore.parseArgs(getClass(), options, args);
+        // only pass through the data store parameters, not the probe options
+        params = CommandLineDataStore.getDataStoreParams(command, CommandLineDataStore.createOptions(parameters));
+        String[] split = command.getOptionValue("rates", "100,1000,5000").split(",");
+        rates = new int[split.length];
+        for (int i = 0; i < split.length; i++) {
+            try {
+                rates[i] = Integer.parseInt(split[i].trim());
+            } catch (NumberFormatException e) {
+                rates[i] = -1;
+            }
+            if (rates[i] < 1) {
+                throw new ParseException("Invalid value for 'rates', expected positive integers: " + split[i]);
+            }
+        }
+        stepSeconds = CommandLineDataStore.getIntOption(command, "step-duration", 30);
+        drainSeconds = CommandLineDataStore.getNonNegativeIntOption(command, "drain", 5);
+        entities = CommandLineDataStore.getIntOption(command, "entities", 1000);
+        cleanup = command.hasOption("cleanup");
+    }
+
+    /**
+     * Results of the last run, with keys 'latency.count' and, for each rate N, 'latency.N.target',
+     * 'latency.N.actual', 'latency.N.sent', 'latency.N.received' and 'latency.N.p50.ms' through
+     * 'latency.N.max.ms'
+     *
+     * @return report
+     */
+    public QuickStartReport getReport() {
+        return report;
+    }
+
+    @Override
+    public void run() {
+        DataStore producer = null;
+        DataStore consumer = null;
+        SimpleFeatureSource source = null;
+        FeatureListener listener = null;
+        try {
+            SimpleFeatureType sft = SimpleFeatureTypes.createType(TYPE_NAME, "stamp:Long,dtg:Date,*geom:Point:srid=4326");
+
+            Map<String, String> producerParams = new HashMap<>(params);
+            producerParams.put("kafka.consumer.count", "0");
+            producer = createDataStore(producerParams);
+            if (!Arrays.asList(producer.getTypeNames()).contains(TYPE_NAME)) {
+                producer.createSchema(sft);
+            }
+
+            // the consumer has to be listening before anything is written, as it starts from the end of the topic
+            Map<String, String> consumerParams = new HashMap<>(params);
+            consumerParams.put("kafka.consumer.count", "1");
+            consumer = createDataStore(consumerParams);
+            Recorder recorder = new Recorder(MAX_LATENCY_MICROS, 3);
+            AtomicLong received = new AtomicLong(0);
+            listener = event -> {
+                if (event.getType() == FeatureEvent.Type.CHANGED && event instanceof KafkaFeatureChanged) {
+                    Object stamp = ((KafkaFeatureChanged) event).feature().getAttribute(0);
+                    if (stamp != null) {
+                        long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - (Long) stamp);
+                        recorder.recordValue(Math.max(0L, Math.min(MAX_LATENCY_MICROS, latency)));
+                        received.incrementAndGet();
+                    }
+                }
+            };
+            source = consumer.getFeatureSource(TYPE_NAME);
+            source.addFeatureListener(listener);
+
+            List<String> results = new ArrayList<>();
+            report.put("latency.count", rates.length);
+            for (int i = 0; i < rates.length; i++) {
+                results.add(step(producer, i, rates[i], recorder, received));
+            }
+
+            System.out.println();
+            System.out.println("Producer to consumer latency:");
+            System.out.println(String.format("%10s %10s %10s %10s %10s %10s %10s %10s %10s",
+                                             "target/s", "actual/s", "sent", "received", "p50 ms",
+                                             "p95 ms", "p99 ms", "p99.9 ms", "max ms"));
+            results.forEach(System.out::println);
+            System.out.println();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Interrupted");
+        } catch (Exception e) {
+            throw new RuntimeException("Error running latency probe:", e);
+        } finally {
+            if (source != null && listener != null) {
+                source.removeFeatureListener(listener);
+            }
+            if (consumer != null) {
+                consumer.dispose();
+            }
+            if (producer != null) {
+                if (cleanup) {
+                    try {
+                        System.out.println("Cleaning up probe schema");
+                        producer.removeSchema(TYPE_NAME);
+                    } catch (IOException e) {
+                        System.err.println("Exception cleaning up probe schema: " + e.toString());
+                    }
+                }
+                producer.dispose();
+            }
+        }
+    }
+
+    /**
+     * Writes features at the given rate for one step, then waits for them to be received
+     *
+     * @return formatted result row
+     */
+    private String step(DataStore producer, int i, int rate, Recorder recorder, AtomicLong received)
+          throws IOException, InterruptedException {
+        System.out.println("Writing at " + rate + " features/sec for " + stepSeconds + "s");
+        // discard anything left over from the previous step
+        recorder.getIntervalHistogram();
+        long receivedStart = received.get();
+
+        Random random = new Random(rate);
+        ReplayPacer pacer = ReplayPacer.rate(rate, 1);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(stepSeconds);
+        // features are written one at a time
+        List<SimpleFeature> single = Collections.singletonList(null);
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                 producer.getFeatureWriterAppend(TYPE_NAME, Transaction.AUTO_COMMIT)) {
+            long n = 0;
+            while (System.nanoTime() < end) {
+                pacer.await(single);
+                SimpleFeature toWrite = writer.next();
+                toWrite.setAttribute(1, new Date());
+                toWrite.setAttribute(2, gf.createPoint(new Coordinate(random.nextDouble() * 360 - 180,
+                                                                      random.nextDouble() * 180 - 90)));
+                // re-use a fixed set of IDs, so the consumer cache doesn't grow without bound
+                ((FeatureIdImpl) toWrite.getIdentifier()).setID(Long.toString(n++ % entities));
+                toWrite.getUserData().put(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+                // stamp as late as possible, so that only the publish and consume are measured
+                toWrite.setAttribute(0, System.nanoTime());
+                writer.write();
+            }
+        }
+        long sent = pacer.getSent();
+        double achieved = pacer.getAchievedRate();
+
+        // wait for outstanding features to arrive
+        long drainEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds);
+        while (received.get() - receivedStart < sent && System.nanoTime() < drainEnd) {
+            Thread.sleep(100);
+        }
+        Histogram histogram = recorder.getIntervalHistogram();
+        long count = received.get() - receivedStart;
+        System.out.println(pacer.report() + ", received " + count);
+        report.put("latency." + i + ".target", rate);
+        report.put("latency." + i + ".actual", achieved);
+        report.put("latency." + i + ".sent", sent);
+        report.put("latency." + i + ".received", count);
+        report.put("latency." + i + ".p50.ms", millis(histogram.getValueAtPercentile(50)));
+        report.put("latency." + i + ".p95.ms", millis(histogram.getValueAtPercentile(95)));
+        report.put("latency." + i + ".p99.ms", millis(histogram.getValueAtPercentile(99)));
+        report.put("latency." + i + ".p99.9.ms", millis(histogram.getValueAtPercentile(99.9)));
+        report.put("latency." + i + ".max.ms", millis(histogram.getMaxValue()));
+        return String.format("%10d %10.1f %10d %10d %10.2f %10.2f %10.2f %10.2f %10.2f", rate, achieved, sent, count,
+                             millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(95)),
+                             millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                             millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000d;
+    }
+
+    public DataStore createDataStore(Map<String, String> params) throws IOException {
+        System.out.println("Loading datastore");
+
+        // use geotools service loading to get a datastore instance
+        DataStore datastore = DataStoreFinder.getDataStore(params);
+        if (datastore == null) {
+            throw new RuntimeException("Could not create data store with provided parameters");
+        }
+        System.out.println();
+        return datastore;
+    }
+
+    public static void main(String[] args) {
+        try {
+            new KafkaLatencyProbe(args).run();
+        } catch (ParseException e) {
+            System.exit(1);
+        } catch (Throwable e) {
+            e.printStackTrace();
+            System.exit(2);
+        }
+        System.exit(0);
+    }
+}
@@ -8,12 +8,19 @@
 
 package org.geomesa.example.kafka;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.geomesa.example.kafka.FeatureEventQueue.OverflowPolicy;
+import org.geomesa.example.quickstart.CommandLineDataStore;
+import org.geomesa.example.quickstart.QuickStartMetrics;
 import org.geotools.api.data.DataAccessFactory.Param;
 import org.geotools.api.data.DataStore;
 import org.geotools.api.data.DataStoreFinder;
@@ -24,13 +31,44 @@ import org.locationtech.geomesa.kafka.data.KafkaDataStoreFactory;
 import org.locationtech.geomesa.kafka.utils.KafkaFeatureEvent.KafkaFeatureChanged;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class KafkaListener implements Runnable {
 
+    // options that aren't passed through to the data store
+    private static final Set<String> LISTENER_OPTIONS =
+          new HashSet<>(Arrays.asList("metrics-file", "metrics-port", "queue-size", "batch-size", "overflow", "sample-rate",
+                                      "aggregate", "aggregate-window", "aggregate-interval", "fast-start"));
+
+    // how often the queue status is printed
+    private static final long STATUS_INTERVAL_MILLIS = 10000L;
+
+    // max time to wait for the cache to be restored at startup
+    private static final long RESTORE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
     private Map<String, String> params;
+    private Path metricsFile = null;
+    private int metricsPort = -1;
+    private int queueSize = 10000;
+    private int batchSize = 500;
+    private OverflowPolicy overflow = OverflowPolicy.BLOCK;
+    private int sampleRate = 10;
+    private boolean aggregate = false;
+    private int aggregateWindow = 60;
+    private int aggregateInterval = 10;
+    private boolean fastStart = false;
 
     public KafkaListener(Map<String, String> params) {
         this.params = params;
@@ -52,6 +90,39 @@ public class KafkaListener implements Runnable {
             }
         }
 
+        options.addOption(Option.builder().longOpt("metrics-file").argName("metrics-file").hasArg()
+                                .desc("Write metrics in Prometheus format to the given file, updated periodically")
+                                .build());
+        options.addOption(Option.builder().longOpt("metrics-port").argName("metrics-port").hasArg()
+                                .desc("Serve metrics in Prometheus format on the given port, at '/metrics'")
+                                .build());
+        options.addOption(Option.builder().longOpt("queue-size").argName("queue-size").hasArg()
+                                .desc("Max number of events waiting to be processed (default 10000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("batch-size").argName("batch-size").hasArg()
+                                .desc("Max number of events to process at once (default 500)")
+                                .build());
+        options.addOption(Option.builder().longOpt("overflow").argName("overflow").hasArg()
+                                .desc("What to do when the queue is full: 'block' the consumer, 'drop-oldest' events, " +
+                                      "or 'sample' events once the queue is half full (default block)")
+                                .build());
+        options.addOption(Option.builder().longOpt("sample-rate").argName("sample-rate").hasArg()
+                                .desc("With the 'sample' overflow policy, keep one out of this many events (default 10)")
+                                .build());
+        options.addOption(Option.builder().longOpt("aggregate")
+                                .desc("Print rolling statistics for each schema, instead of printing each event")
+                                .build());
+        options.addOption(Option.builder().longOpt("aggregate-window").argName("aggregate-window").hasArg()
+                                .desc("Length of the sliding window for aggregate statistics, in seconds (default 60)")
+                                .build());
+        options.addOption(Option.builder().longOpt("aggregate-interval").argName("aggregate-interval").hasArg()
+                                .desc("How often to print aggregate statistics, in seconds (default 10)")
+                                .build());
+        options.addOption(Option.builder().longOpt("fast-start")
+                                .desc("Restore the current state from the topics at startup, with one consumer per " +
+                                      "partition, before listening for new events")
+                                .build());
+
         CommandLine cmd;
         try {
             cmd = new DefaultParser().parse(options, args);
@@ -66,40 +137,99 @@ public class KafkaListener implements Runnable {
         // noinspection unchecked
         for (Option opt: options.getOptions()) {
             String value = cmd.getOptionValue(opt.getLongOpt());
-            if (value != null) {
+            if (value != null && !LISTENER_OPTIONS.contains(opt.getLongOpt())) {
                 params.put(opt.getArgName(), value);
             }
         }
+
+        try {
+            if (cmd.hasOption("metrics-file")) {
+                metricsFile = Paths.get(cmd.getOptionValue("metrics-file"));
+            }
+            if (cmd.hasOption("metrics-port")) {
+                metricsPort = CommandLineDataStore.getIntOption(cmd, "metrics-port", -1);
+            }
+            queueSize = CommandLineDataStore.getIntOption(cmd, "queue-size", queueSize);
+            batchSize = CommandLineDataStore.getIntOption(cmd, "batch-size", batchSize);
+            sampleRate = CommandLineDataStore.getIntOption(cmd, "sample-rate", sampleRate);
+            aggregate = cmd.hasOption("aggregate");
+            aggregateWindow = CommandLineDataStore.getIntOption(cmd, "aggregate-window", aggregateWindow);
+            aggregateInterval = CommandLineDataStore.getIntOption(cmd, "aggregate-interval", aggregateInterval);
+            fastStart = cmd.hasOption("fast-start");
+            if (cmd.hasOption("overflow")) {
+                try {
+                    overflow = OverflowPolicy.parse(cmd.getOptionValue("overflow"));
+                } catch (IllegalArgumentException e) {
+                    throw new ParseException("Invalid value for 'overflow', expected one of block, drop-oldest or " +
+                                             "sample: " + cmd.getOptionValue("overflow"));
+                }
+            }
+        } catch (ParseException e) {
+            // errors from parsing the arguments are printed above, but errors in their values are not
+            System.err.println(e.getMessage());
+            throw e;
+        }
     }
 
     @Override
     public void run() {
         DataStore datastore = null;
         Map<String, FeatureListener> listeners = new HashMap<>();
+        QuickStartMetrics metrics = QuickStartMetrics.disabled();
+        FeatureEventQueue queue = null;
 
         try {
-            // this instance is a consumer
-            params.put("kafka.consumer.count", "1");
+            if (metricsFile != null || metricsPort > 0) {
+                metrics = new QuickStartMetrics(metricsFile, metricsPort);
+            }
+
+            if (fastStart) {
+                configureFastStart(params);
+            }
+
+            // this instance is a consumer - use one consumer unless 'kafka.consumer.count' was specified
+            params.putIfAbsent("kafka.consumer.count", "1");
             datastore = createDataStore(params);
 
+            if (fastStart) {
+                // load the existing messages before registering listeners, so that only new events are handled
+                for (String typeName: datastore.getTypeNames()) {
+                    System.out.println(CacheRestore.restore(datastore, typeName, RESTORE_TIMEOUT_MILLIS).report());
+                }
+                System.out.println();
+            }
+
+            if (aggregate) {
+                aggregate(datastore, listeners);
+                return;
+            }
+
+            // events are handled in batches on a separate thread, so that printing them doesn't slow down the consumer
+            queue = new FeatureEventQueue(queueSize, batchSize, overflow, sampleRate, createHandler(metrics));
+            FeatureEventQueue events = queue;
+            Gauge.builder(QuickStartMetrics.PREFIX + "listener.queue.depth", events, FeatureEventQueue::getDepth)
+                 .register(metrics.getRegistry());
+            FunctionCounter.builder(QuickStartMetrics.PREFIX + "listener.dropped", events, FeatureEventQueue::getDropped)
+                           .register(metrics.getRegistry());
+            System.out.println("Queueing up to " + queueSize + " events, with overflow policy " + overflow);
+
             for (String typeName: datastore.getTypeNames()) {
                 System.out.println("Registering a feature listener for schema '" + typeName + "'");
-                FeatureListener listener = featureEvent -> {
-                    System.out.println("Received FeatureEvent from schema '" + typeName + "' of type '" + featureEvent.getType() + "'");
-                    if (featureEvent.getType() == FeatureEvent.Type.CHANGED &&
-                        featureEvent instanceof KafkaFeatureChanged) {
-                        System.out.println(DataUtilities.encodeFeature(((KafkaFeatureChanged) featureEvent).feature()));
-                    } else if (featureEvent.getType() == FeatureEvent.Type.REMOVED) {
-                        System.out.println("Received Delete for filter: " + featureEvent.getFilter());
-                    }
-                };
+                FeatureListener listener = featureEvent -> events.offer(typeName, featureEvent);
                 datastore.getFeatureSource(typeName).addFeatureListener(listener);
                 listeners.put(typeName, listener);
             }
 
+            long lastStatus = System.currentTimeMillis();
             while (true) {
                 // Wait for user to terminate with ctrl-c
                 Thread.sleep(1000);
+                long now = System.currentTimeMillis();
+                if (now - lastStatus >= STATUS_INTERVAL_MILLIS) {
+                    lastStatus = now;
+                    System.out.println("Event queue: processed " + events.getProcessed() + ", queued " +
+                                       events.getDepth() + ", dropped " + events.getDropped());
+                }
             }
         } catch (InterruptedException e) {
             System.out.println("Done");
@@ -117,7 +247,119 @@ public class KafkaListener implements Runnable {
                 }
                 datastore.dispose();
             }
+            if (queue != null) {
+                queue.close();
+            }
+            try {
+                metrics.close();
+            } catch (IOException e) {
+                System.err.println("Exception writing metrics: " + e.toString());
+            }
+        }
+    }
+
+    /**
+     * Configures the consumer to restore its cache from the existing messages at startup. Unless otherwise
+     * specified, all messages are read back, and one consumer is used per topic partition so that the
+     * partitions are loaded in parallel. Enabled through the 'fast-start' command-line option.
+     *
+     * @param params data store parameters, which will be updated
+     * @throws IOException on error
+     */
+    public void configureFastStart(Map<String, String> params) throws IOException {
+        params.putIfAbsent("kafka.consumer.read-back", "Inf");
+        if (!params.containsKey("kafka.consumer.count")) {
+            // use a data store without consumers to look up the topics
+            Map<String, String> metadataParams = new HashMap<>(params);
+            metadataParams.put("kafka.consumer.count", "0");
+            DataStore metadata = createDataStore(metadataParams);
+            try {
+                List<String> topics = new ArrayList<>();
+                for (String typeName: metadata.getTypeNames()) {
+                    topics.add(KafkaTopics.getTopic(metadata.getSchema(typeName)));
+                }
+                int partitions = KafkaTopics.getMaxPartitions(params.get("kafka.brokers"), topics);
+                params.put("kafka.consumer.count", Integer.toString(Math.max(1, partitions)));
+            } finally {
+                metadata.dispose();
+            }
         }
+        System.out.println("Restoring state with " + params.get("kafka.consumer.count") + " consumers, reading back " +
+                           params.get("kafka.consumer.read-back"));
+    }
+
+    /**
+     * Records statistics for each schema directly from the listener callback, and prints them periodically.
+     * Enabled through the 'aggregate' command-line option.
+     *
+     * @param datastore consumer data store
+     * @param listeners registered listeners, by type name, which will be removed on shutdown
+     * @throws IOException on error
+     * @throws InterruptedException when the user terminates the listener
+     */
+    public void aggregate(DataStore datastore, Map<String, FeatureListener> listeners)
+          throws IOException, InterruptedException {
+        Map<String, LiveEventStatistics> statistics = new LinkedHashMap<>();
+        for (String typeName: datastore.getTypeNames()) {
+            System.out.println("Registering an aggregating feature listener for schema '" + typeName + "'");
+            LiveEventStatistics stats = new LiveEventStatistics(datastore.getSchema(typeName), aggregateWindow);
+            // recording only uses atomic updates, so it's cheap enough to do on the consumer thread
+            FeatureListener listener = stats::record;
+            datastore.getFeatureSource(typeName).addFeatureListener(listener);
+            listeners.put(typeName, listener);
+            statistics.put(typeName, stats);
+        }
+        while (true) {
+            // Wait for user to terminate with ctrl-c
+            Thread.sleep(TimeUnit.SECONDS.toMillis(aggregateInterval));
+            for (LiveEventStatistics stats : statistics.values()) {
+                System.out.println(stats.summary());
+            }
+        }
+    }
+
+    /**
+     * Creates the handler for batches of events, which prints them out
+     *
+     * @param metrics metrics
+     * @return handler
+     */
+    public FeatureEventQueue.BatchHandler createHandler(QuickStartMetrics metrics) {
+        Map<String, Timer> timers = new HashMap<>();
+        Map<String, Map<FeatureEvent.Type, Counter>> counters = new HashMap<>();
+        StringBuilder output = new StringBuilder();
+        return batch -> {
+            for (FeatureEventQueue.QueuedEvent queued : batch) {
+                String typeName = queued.getTypeName();
+                FeatureEvent featureEvent = queued.getEvent();
+                QuickStartMetrics.ListenerEvent event = new QuickStartMetrics.ListenerEvent();
+                event.typeName = typeName;
+                event.eventType = featureEvent.getType().name();
+                event.begin();
+                output.append("Received FeatureEvent from schema '").append(typeName).append("' of type '")
+                      .append(featureEvent.getType()).append("'\n");
+                if (featureEvent.getType() == FeatureEvent.Type.CHANGED &&
+                    featureEvent instanceof KafkaFeatureChanged) {
+                    output.append(DataUtilities.encodeFeature(((KafkaFeatureChanged) featureEvent).feature())).append('\n');
+                } else if (featureEvent.getType() == FeatureEvent.Type.REMOVED) {
+                    output.append("Received Delete for filter: ").append(featureEvent.getFilter()).append('\n');
+                }
+                // time from the consumer receiving the event until it's handled, including time spent in the queue
+                timers.computeIfAbsent(typeName, t -> metrics.timer("listener.event", "type", t))
+                      .record(System.nanoTime() - queued.getReceivedNanos(), TimeUnit.NANOSECONDS);
+                counters.computeIfAbsent(typeName, t -> {
+                    Map<FeatureEvent.Type, Counter> byType = new EnumMap<>(FeatureEvent.Type.class);
+                    for (FeatureEvent.Type type : FeatureEvent.Type.values()) {
+                        byType.put(type, metrics.counter("listener.events", "type", t, "event", type.name()));
+                    }
+                    return byType;
+                }).get(featureEvent.getType()).increment();
+                event.commit();
+            }
+            // write the whole batch at once, instead of once per event
+            System.out.print(output);
+            output.setLength(0);
+        };
     }
 
     public DataStore createDataStore(Map<String, String> params) throws IOException {
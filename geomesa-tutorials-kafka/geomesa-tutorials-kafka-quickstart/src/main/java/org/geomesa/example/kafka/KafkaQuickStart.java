@@ -27,18 +27,34 @@ import org.geotools.api.data.SimpleFeatureSource;
 import org.geotools.api.data.SimpleFeatureStore;
 import org.geotools.feature.visitor.BoundsVisitor;
 import org.locationtech.geomesa.kafka.data.KafkaDataStoreFactory;
+import org.locationtech.geomesa.utils.interop.SimpleFeatureTypes;
 import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.api.feature.simple.SimpleFeatureType;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class KafkaQuickStart extends GeoMesaQuickStart {
 
-    private boolean wait = true;
+    // default replay rate, approximately one feature every 15ms
+    private static final double DEFAULT_RATE = 1000d / 15;
+
+    // how often the consumer state is printed while writing
+    private static final long PRINT_INTERVAL_MILLIS = 3000L;
+
+    // note: options are parsed in the super constructor, and field initializers in this class run afterwards,
+    // so these fields must not have initializers - they are set in initializeFromOptions and createDataStore
+    private boolean wait;
+    private double replayRate;
+    private double replaySpeedup;
+    private String consumerCount;
+    private boolean compactTopic;
 
     // uses t-dive streaming data
     public KafkaQuickStart(String[] args) throws ParseException {
@@ -48,15 +64,71 @@ public class KafkaQuickStart extends GeoMesaQuickStart {
     @Override
     public Options createOptions(Param[] parameters) {
         Options options = super.createOptions(parameters);
-        options.addOption(Option.builder().longOpt("automated").build());
+        options.addOption(Option.builder().longOpt("automated")
+                                .desc("Run without waiting for user input, e.g. from a script or benchmark harness")
+                                .build());
+        options.addOption(Option.builder().longOpt("replay-rate").argName("replay-rate").hasArg()
+                                .desc("Target number of features per second to write to Kafka (default 66)")
+                                .build());
+        options.addOption(Option.builder().longOpt("replay-speedup").argName("replay-speedup").hasArg()
+                                .desc("Write features according to their timestamps instead of at a fixed rate, " +
+                                      "compressing time by the given factor (e.g. 60 to replay an hour in a minute)")
+                                .build());
+        options.addOption(Option.builder().longOpt("compact-topic")
+                                .desc("Enable log compaction on the topic, so that consumers reading back the topic " +
+                                      "only load the latest message for each feature")
+                                .build());
         return options;
     }
 
     @Override
-    public void initializeFromOptions(CommandLine command) {
+    public void initializeFromOptions(CommandLine command) throws ParseException {
         super.initializeFromOptions(command);
-        // TODO
-        wait = !Boolean.parseBoolean(command.getOptionValue("automated", "false"));
+        wait = !command.hasOption("automated");
+        if (command.hasOption("replay-rate") && command.hasOption("replay-speedup")) {
+            throw new ParseException("Options 'replay-rate' and 'replay-speedup' can't be used together");
+        }
+        replayRate = getPositiveDouble(command, "replay-rate", DEFAULT_RATE);
+        replaySpeedup = getPositiveDouble(command, "replay-speedup", -1d);
+        compactTopic = command.hasOption("compact-topic");
+    }
+
+    private static double getPositiveDouble(CommandLine command, String option, double defaultValue)
+          throws ParseException {
+        String value = command.getOptionValue(option);
+        if (value == null) {
+            return defaultValue;
+        }
+        double d;
+        try {
+            d = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            d = -1d;
+        }
+        if (!(d > 0)) {
+            throw new ParseException("Invalid value for '" + option + "', expected a positive number: " + value);
+        }
+        return d;
+    }
+
+    /**
+     * Creates the pacer used to control the rate of writes, based on the 'replay-rate' or
+     * 'replay-speedup' command-line options
+     *
+     * @param sft simple feature type
+     * @param batch number of features sent at once
+     * @return pacer
+     */
+    public ReplayPacer createPacer(SimpleFeatureType sft, int batch) {
+        if (replaySpeedup > 0) {
+            Object dtg = sft.getUserData().get(SimpleFeatureTypes.DEFAULT_DATE_KEY);
+            int dtgIndex = dtg == null ? -1 : sft.indexOf(dtg.toString());
+            if (dtgIndex == -1) {
+                throw new IllegalArgumentException("Option 'replay-speedup' requires a date attribute");
+            }
+            return ReplayPacer.timestamps(dtgIndex, replaySpeedup);
+        }
+        return ReplayPacer.rate(replayRate, batch);
     }
 
     @Override
@@ -64,17 +136,36 @@ public class KafkaQuickStart extends GeoMesaQuickStart {
         // use geotools service loading to get a datastore instance
         // we load two data stores - one is a producer, that writes features to kafka
         // the second is a consumer, that reads them from kafka (created below)
+        // use one consumer unless 'kafka.consumer.count' was specified
+        consumerCount = params.getOrDefault("kafka.consumer.count", "1");
         params.put("kafka.consumer.count", "0");
         return super.createDataStore(params);
     }
 
+    @Override
+    public void createSchema(DataStore datastore, SimpleFeatureType sft) throws IOException {
+        super.createSchema(datastore, sft);
+        if (compactTopic) {
+            String topic = KafkaTopics.getTopic(datastore.getSchema(sft.getTypeName()));
+            System.out.println("Enabling log compaction for topic '" + topic + "'");
+            KafkaTopics.compact(params.get("kafka.brokers"), topic);
+            System.out.println();
+        }
+    }
+
+    @Override
+    public boolean usesDefaultWrites() {
+        // features are written through the list variant of writeFeatures
+        return false;
+    }
+
     @Override
     public void writeFeatures(DataStore datastore, SimpleFeatureType sft, List<SimpleFeature> features) throws IOException {
         // the live consumer must be created before the producer writes features
         // in order to read streaming data.
         // i.e. the live consumer will only read data written after its instantiation
         // alternatively, it may be configured to read back in the topic
-        params.put("kafka.consumer.count", "1");
+        params.put("kafka.consumer.count", consumerCount);
         DataStore consumer = super.createDataStore(params);
         try {
             SimpleFeatureSource consumerFS = consumer.getFeatureSource(sft.getTypeName());
@@ -95,19 +186,37 @@ public class KafkaQuickStart extends GeoMesaQuickStart {
                 System.in.read();
             }
 
-            // creates and adds SimpleFeatures to the producer every few milliseconds to simulate a live stream
-            // given our test data set, this will run for approximately 30 seconds
+            // features are sent one at a time unless a batch size is specified
+            int batch = Math.max(1, getBatchSize());
+            ReplayPacer pacer = createPacer(sft, batch);
+            if (replaySpeedup > 0) {
+                // replay in time order - the sort is stable, so features with the same date keep their order
+                Object dtg = sft.getUserData().get(SimpleFeatureTypes.DEFAULT_DATE_KEY);
+                int dtgIndex = sft.indexOf(dtg.toString());
+                features = new ArrayList<>(features);
+                features.sort(Comparator.comparing(f -> (Date) f.getAttribute(dtgIndex),
+                                                   Comparator.nullsLast(Comparator.naturalOrder())));
+            }
+
+            // creates and adds SimpleFeatures to the producer at a controlled rate to simulate a live stream
+            // given our test data set and the default rate, this will run for approximately 30 seconds
             System.out.println("Writing features to Kafka... refresh GeoServer layer preview to see changes");
             System.out.println("Current consumer state:");
-            int n = 0;
-            for (SimpleFeature feature: features) {
-                producerFS.addFeatures(new ListFeatureCollection(sft, Collections.singletonList(feature)));
+            long start = System.currentTimeMillis();
+            long lastPrint = start;
+            for (int i = 0; i < features.size(); i += batch) {
+                List<SimpleFeature> chunk = features.subList(i, Math.min(i + batch, features.size()));
                 try {
-                    Thread.sleep(15);
+                    pacer.await(chunk);
                 } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                     return;
                 }
-                if (++n % 200 == 0) {
+                producerFS.addFeatures(new ListFeatureCollection(sft, chunk));
+                long now = System.currentTimeMillis();
+                if (now - lastPrint >= PRINT_INTERVAL_MILLIS) {
+                    lastPrint = now;
+                    System.out.println(pacer.report());
                     // LIVE CONSUMER - will obtain the current state of SimpleFeatures
                     // there should only be a single feature at one time
                     try (SimpleFeatureIterator iterator = consumerFS.getFeatures().features()) {
@@ -117,6 +226,8 @@ public class KafkaQuickStart extends GeoMesaQuickStart {
                     }
                 }
             }
+            System.out.println(pacer.report());
+            getReport().ingest(pacer.getSent(), System.currentTimeMillis() - start);
         } finally {
             if (consumer != null) {
                 consumer.dispose();
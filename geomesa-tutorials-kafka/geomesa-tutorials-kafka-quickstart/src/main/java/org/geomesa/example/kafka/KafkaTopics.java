@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.kafka;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.AlterConfigOp;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.config.ConfigResource;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Helpers for inspecting and configuring the Kafka topics behind GeoMesa schemas
+ */
+public class KafkaTopics {
+
+    // user data key that the kafka data store uses to store the topic of a schema
+    private static final String TOPIC_KEY = "geomesa.kafka.topic";
+
+    private KafkaTopics() {}
+
+    /**
+     * Gets the topic used for a schema
+     *
+     * @param sft simple feature type, as returned by the data store
+     * @return topic
+     */
+    public static String getTopic(SimpleFeatureType sft) {
+        Object topic = sft.getUserData().get(TOPIC_KEY);
+        if (topic == null) {
+            throw new IllegalArgumentException("No topic configured for schema '" + sft.getTypeName() + "'");
+        }
+        return topic.toString();
+    }
+
+    /**
+     * Gets the largest number of partitions of the given topics
+     *
+     * @param brokers kafka brokers
+     * @param topics topics
+     * @return max number of partitions, or 0 if there are no topics
+     * @throws IOException if the topics can't be described
+     */
+    public static int getMaxPartitions(String brokers, Collection<String> topics) throws IOException {
+        if (topics.isEmpty()) {
+            return 0;
+        }
+        try (Admin admin = Admin.create(adminProps(brokers))) {
+            Map<String, TopicDescription> descriptions = admin.describeTopics(topics).allTopicNames().get();
+            int max = 0;
+            for (TopicDescription description : descriptions.values()) {
+                max = Math.max(max, description.partitions().size());
+            }
+            return max;
+        } catch (ExecutionException e) {
+            throw new IOException("Error describing topics " + topics, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted describing topics " + topics, e);
+        }
+    }
+
+    /**
+     * Enables log compaction for a topic, so that Kafka eventually keeps only the latest message for each
+     * feature ID. Reading back a compacted topic is then bounded by the number of live features, instead
+     * of the number of updates ever written.
+     *
+     * Compaction only applies to closed log segments, so segments are rolled every 10 minutes.
+     *
+     * @param brokers kafka brokers
+     * @param topic topic
+     * @throws IOException if the topic can't be configured
+     */
+    public static void compact(String brokers, String topic) throws IOException {
+        ConfigResource resource = new ConfigResource(ConfigResource.Type.TOPIC, topic);
+        Collection<AlterConfigOp> ops =
+              Arrays.asList(new AlterConfigOp(new ConfigEntry("cleanup.policy", "compact"), AlterConfigOp.OpType.SET),
+                            new AlterConfigOp(new ConfigEntry("segment.ms", "600000"), AlterConfigOp.OpType.SET));
+        try (Admin admin = Admin.create(adminProps(brokers))) {
+            admin.incrementalAlterConfigs(Collections.singletonMap(resource, ops)).all().get();
+        } catch (ExecutionException e) {
+            throw new IOException("Error configuring topic " + topic, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted configuring topic " + topic, e);
+        }
+    }
+
+    private static Properties adminProps(String brokers) {
+        Properties props = new Properties();
+        props.setProperty(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, brokers);
+        return props;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.kafka;
+
+import org.geotools.api.data.FeatureEvent;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.locationtech.geomesa.kafka.utils.KafkaFeatureEvent.KafkaFeatureChanged;
+import org.locationtech.geomesa.kafka.utils.KafkaFeatureEvent.KafkaFeatureCleared;
+import org.locationtech.geomesa.utils.interop.SimpleFeatureTypes;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rolling statistics for the feature events of a single schema, over a sliding window:
+ *
+ * <ul>
+ *     <li>rates of changed, removed and cleared events</li>
+ *     <li>bounding box of the changed features</li>
+ *     <li>approximate number of distinct feature IDs, from a HyperLogLog sketch</li>
+ *     <li>event-time lag, i.e. the time between a feature's date and when its event was received</li>
+ * </ul>
+ *
+ * The window is divided into one-second buckets. Events are recorded into the current bucket using only
+ * atomic operations, so that recording is cheap and can be done directly from the consumer thread. Buckets
+ * are merged when the statistics are read.
+ */
+public class LiveEventStatistics {
+
+    // HyperLogLog precision - 2^10 registers gives a standard error of about 3%
+    private static final int HLL_BITS = 10;
+    private static final int HLL_REGISTERS = 1 << HLL_BITS;
+
+    private final String typeName;
+    private final int dtgIndex;
+    private final int windowSeconds;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    /**
+     * @param sft simple feature type of the events
+     * @param windowSeconds length of the sliding window
+     */
+    public LiveEventStatistics(SimpleFeatureType sft, int windowSeconds) {
+        if (windowSeconds < 1) {
+            throw new IllegalArgumentException("Window must be positive: " + windowSeconds);
+        }
+        this.typeName = sft.getTypeName();
+        Object dtg = sft.getUserData().get(SimpleFeatureTypes.DEFAULT_DATE_KEY);
+        this.dtgIndex = dtg == null ? -1 : sft.indexOf(dtg.toString());
+        this.windowSeconds = windowSeconds;
+        this.buckets = new AtomicReferenceArray<>(windowSeconds);
+    }
+
+    /**
+     * Records an event. Safe to call from multiple threads.
+     *
+     * @param event event
+     */
+    public void record(FeatureEvent event) {
+        long now = System.currentTimeMillis();
+        Bucket bucket = bucket(now / 1000);
+        if (event instanceof KafkaFeatureCleared) {
+            bucket.cleared.increment();
+        } else if (event.getType() == FeatureEvent.Type.REMOVED) {
+            bucket.removed.increment();
+        } else if (event.getType() == FeatureEvent.Type.CHANGED) {
+            bucket.changed.increment();
+            if (event instanceof KafkaFeatureChanged) {
+                SimpleFeature feature = ((KafkaFeatureChanged) event).feature();
+                bucket.addId(feature.getID());
+                Object geom = feature.getDefaultGeometry();
+                if (geom instanceof Geometry && !((Geometry) geom).isEmpty()) {
+                    Envelope env = ((Geometry) geom).getEnvelopeInternal();
+                    bucket.minX.accumulate(env.getMinX());
+                    bucket.minY.accumulate(env.getMinY());
+                    bucket.maxX.accumulate(env.getMaxX());
+                    bucket.maxY.accumulate(env.getMaxY());
+                }
+                if (dtgIndex != -1) {
+                    Object dtg = feature.getAttribute(dtgIndex);
+                    if (dtg instanceof Date) {
+                        long lag = now - ((Date) dtg).getTime();
+                        bucket.lagSum.add(lag);
+                        bucket.lagCount.increment();
+                        bucket.lagMax.accumulate(lag);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the bucket for the given second, replacing the bucket from the previous window if needed
+     */
+    private Bucket bucket(long second) {
+        int i = (int) (second % windowSeconds);
+        while (true) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.second == second) {
+                return bucket;
+            } else if (bucket != null && bucket.second > second) {
+                // clock went backwards - record into the newer bucket rather than losing the event
+                return bucket;
+            }
+            Bucket next = new Bucket(second);
+            if (buckets.compareAndSet(i, bucket, next)) {
+                return next;
+            }
+            // another thread replaced the bucket first, so re-read it
+        }
+    }
+
+    /**
+     * Merges the buckets in the current window into a summary
+     *
+     * @return summary
+     */
+    public String summary() {
+        long now = System.currentTimeMillis() / 1000;
+        long changed = 0;
+        long removed = 0;
+        long cleared = 0;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        long lagSum = 0;
+        long lagCount = 0;
+        long lagMax = Long.MIN_VALUE;
+        int[] registers = new int[HLL_REGISTERS];
+        for (int i = 0; i < windowSeconds; i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket == null || bucket.second <= now - windowSeconds || bucket.second > now) {
+                continue;
+            }
+            changed += bucket.changed.sum();
+            removed += bucket.removed.sum();
+            cleared += bucket.cleared.sum();
+            minX = Math.min(minX, bucket.minX.get());
+            minY = Math.min(minY, bucket.minY.get());
+            maxX = Math.max(maxX, bucket.maxX.get());
+            maxY = Math.max(maxY, bucket.maxY.get());
+            lagSum += bucket.lagSum.sum();
+            lagCount += bucket.lagCount.sum();
+            lagMax = Math.max(lagMax, bucket.lagMax.get());
+            for (int r = 0; r < HLL_REGISTERS; r++) {
+                registers[r] = Math.max(registers[r], bucket.registers.get(r));
+            }
+        }
+
+        StringBuilder summary = new StringBuilder();
+        summary.append(typeName).append(" (last ").append(windowSeconds).append("s): ");
+        summary.append(String.format("changed %.1f/s, removed %.1f/s, cleared %.1f/s", changed / (double) windowSeconds,
+                                     removed / (double) windowSeconds, cleared / (double) windowSeconds));
+        summary.append(String.format(", distinct ids ~%d", estimate(registers)));
+        if (minX <= maxX) {
+            summary.append(String.format(", bounds [%.5f, %.5f, %.5f, %.5f]", minX, minY, maxX, maxY));
+        }
+        if (lagCount > 0) {
+            summary.append(String.format(", event lag mean %dms max %dms", lagSum / lagCount, lagMax));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * HyperLogLog cardinality estimate, with the small range correction
+     */
+    private static long estimate(int[] registers) {
+        double sum = 0;
+        int zeros = 0;
+        for (int register : registers) {
+            sum += 1d / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double m = registers.length;
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // linear counting is more accurate for small cardinalities
+            estimate = m * Math.log(m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * 64-bit hash of a string, using FNV-1a followed by a murmur3 finalizer to spread the bits
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Statistics for a single second
+     */
+    private static class Bucket {
+
+        private final long second;
+        private final LongAdder changed = new LongAdder();
+        private final LongAdder removed = new LongAdder();
+        private final LongAdder cleared = new LongAdder();
+        private final DoubleAccumulator minX = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        private final DoubleAccumulator minY = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        private final DoubleAccumulator maxX = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+        private final DoubleAccumulator maxY = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+        private final LongAdder lagSum = new LongAdder();
+        private final LongAdder lagCount = new LongAdder();
+        private final LongAccumulator lagMax = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private final AtomicIntegerArray registers = new AtomicIntegerArray(HLL_REGISTERS);
+
+        Bucket(long second) {
+            this.second = second;
+        }
+
+        void addId(String id) {
+            long h = hash(id);
+            int register = (int) (h >>> (64 - HLL_BITS));
+            // position of the first set bit in the remaining bits, counting from 1
+            int rank = Long.numberOfLeadingZeros((h << HLL_BITS) | (1L << (HLL_BITS - 1))) + 1;
+            int current;
+            while (rank > (current = registers.get(register))) {
+                if (registers.compareAndSet(register, current, rank)) {
+                    break;
+                }
+            }
+        }
+    }
+}
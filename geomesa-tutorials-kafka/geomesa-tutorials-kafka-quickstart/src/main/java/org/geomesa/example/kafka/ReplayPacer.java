@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2013-2018 Commonwealth Computer Research, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, Version 2.0 which
+ * accompanies this distribution and is available at
+ * http://www.opensource.org/licenses/apache2.0.php.
+ */
+
+package org.geomesa.example.kafka;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Controls the rate at which features are replayed to Kafka, either at a fixed number of messages per second,
+ * or following the timestamps of the features themselves.
+ *
+ * Sends are scheduled against absolute times, rather than by sleeping between sends, so that time spent
+ * in the producer doesn't slow down the overall rate. If the producer falls behind, features are sent
+ * as fast as possible until it catches up.
+ */
+public abstract class ReplayPacer {
+
+    private long start = -1L;
+    private long sent = 0L;
+    private long maxLagNanos = 0L;
+
+    /**
+     * Paces at a fixed rate, using a token bucket
+     *
+     * @param messagesPerSecond target rate
+     * @param burst max number of messages that can be sent at once after the producer has been idle
+     * @return pacer
+     */
+    public static ReplayPacer rate(double messagesPerSecond, int burst) {
+        return new RatePacer(messagesPerSecond, burst);
+    }
+
+    /**
+     * Paces according to the feature timestamps. Features must be sorted by date.
+     *
+     * @param dtgIndex index of the date attribute
+     * @param speedup time compression factor, i.e. 60 will replay an hour of data in a minute
+     * @return pacer
+     */
+    public static ReplayPacer timestamps(int dtgIndex, double speedup) {
+        return new TimestampPacer(dtgIndex, speedup);
+    }
+
+    /**
+     * Blocks until the features are due to be sent
+     *
+     * @param features next features to send
+     * @throws InterruptedException if interrupted
+     */
+    public void await(List<SimpleFeature> features) throws InterruptedException {
+        long now = System.nanoTime();
+        if (start < 0) {
+            start = now;
+        }
+        long due = schedule(features, now);
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        maxLagNanos = Math.max(maxLagNanos, System.nanoTime() - due);
+        sent += features.size();
+    }
+
+    /**
+     * Works out when the next features are due to be sent
+     *
+     * @param features features
+     * @param now current time, in nanos
+     * @return time the features should be sent, in nanos
+     */
+    protected abstract long schedule(List<SimpleFeature> features, long now);
+
+    /**
+     * Target rate, in messages per second
+     *
+     * @return target rate, or a negative value if not known
+     */
+    public abstract double getTargetRate();
+
+    /**
+     * Achieved rate since the first feature was sent, in messages per second
+     *
+     * @return rate
+     */
+    public double getAchievedRate() {
+        if (start < 0) {
+            return 0d;
+        }
+        return sent * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1L, System.nanoTime() - start);
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * Max time that a send was behind schedule
+     *
+     * @return lag in millis
+     */
+    public long getMaxLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLagNanos);
+    }
+
+    /**
+     * Summary of the achieved versus target rate
+     *
+     * @return summary
+     */
+    public String report() {
+        double target = getTargetRate();
+        return String.format("Sent %d features at %.1f msgs/sec (target %s), max lag %dms", sent, getAchievedRate(),
+                             target < 0 ? "n/a" : String.format("%.1f msgs/sec", target), getMaxLagMillis());
+    }
+
+    private static class RatePacer extends ReplayPacer {
+
+        private final double messagesPerSecond;
+        private final long intervalNanos;
+        private final long burstNanos;
+        // time at which the next message is allowed, i.e. the bucket is empty until then
+        private long next = Long.MIN_VALUE;
+
+        RatePacer(double messagesPerSecond, int burst) {
+            if (messagesPerSecond <= 0) {
+                throw new IllegalArgumentException("Rate must be positive: " + messagesPerSecond);
+            } else if (burst < 1) {
+                throw new IllegalArgumentException("Burst must be positive: " + burst);
+            }
+            this.messagesPerSecond = messagesPerSecond;
+            this.intervalNanos = Math.max(1L, Math.round(TimeUnit.SECONDS.toNanos(1) / messagesPerSecond));
+            this.burstNanos = intervalNanos * burst;
+        }
+
+        @Override
+        protected long schedule(List<SimpleFeature> features, long now) {
+            // tokens accumulate while idle, up to the burst size
+            long due = next == Long.MIN_VALUE ? now : Math.max(next, now - burstNanos);
+            next = due + intervalNanos * features.size();
+            return due;
+        }
+
+        @Override
+        public double getTargetRate() {
+            return messagesPerSecond;
+        }
+    }
+
+    private static class TimestampPacer extends ReplayPacer {
+
+        private final int dtgIndex;
+        private final double speedup;
+        private long firstNanos = -1L;
+        private long firstMillis = -1L;
+        private long lastMillis = -1L;
+
+        TimestampPacer(int dtgIndex, double speedup) {
+            if (speedup <= 0) {
+                throw new IllegalArgumentException("Speedup must be positive: " + speedup);
+            }
+            this.dtgIndex = dtgIndex;
+            this.speedup = speedup;
+        }
+
+        @Override
+        protected long schedule(List<SimpleFeature> features, long now) {
+            // batches are sent when their first feature is due
+            Date dtg = (Date) features.get(0).getAttribute(dtgIndex);
+            Date end = (Date) features.get(features.size() - 1).getAttribute(dtgIndex);
+            if (end != null) {
+                lastMillis = end.getTime();
+            }
+            if (dtg == null) {
+                // no timestamp - send immediately
+                return now;
+            } else if (firstNanos < 0) {
+                firstNanos = now;
+                firstMillis = dtg.getTime();
+                return now;
+            }
+            long offsetNanos = TimeUnit.MILLISECONDS.toNanos(dtg.getTime() - firstMillis);
+            return firstNanos + Math.round(offsetNanos / speedup);
+        }
+
+        @Override
+        public double getTargetRate() {
+            if (firstMillis < 0 || lastMillis <= firstMillis) {
+                return -1d;
+            }
+            // rate required to send everything so far within the compressed time span
+            double seconds = (lastMillis - firstMillis) / 1000d / speedup;
+            return getSent() / seconds;
+        }
+    }
+}
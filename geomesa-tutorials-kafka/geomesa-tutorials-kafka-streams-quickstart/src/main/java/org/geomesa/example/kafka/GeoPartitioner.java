@@ -7,30 +7,35 @@ import org.locationtech.geomesa.utils.geohash.GeohashUtils;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 
-import java.util.List;
+/**
+ * Keys messages by the Z2 bin of their default geometry, so that nearby features end up in the same
+ * partition. Keys are longs, to be used with a binary serde such as Serdes.Long(), instead of formatted strings.
+ */
+public class GeoPartitioner implements KeyValueMapper<String, GeoMesaMessage, Long> {
 
-class GeoPartitioner implements KeyValueMapper<String, GeoMesaMessage, String> {
-
-  private final Short partitionNumBits;
-  private final Integer defaultGeomIndex;
+  private final int defaultGeomIndex;
   private final Z2SFC z2;
 
   public GeoPartitioner(Short partitionNumBits, Integer defaultGeomIndex) {
-    this.partitionNumBits = partitionNumBits;
     this.defaultGeomIndex = defaultGeomIndex;
     this.z2 = new Z2SFC(partitionNumBits / 2);
   }
 
-  private String getZBin(Geometry geom) {
+  private long getZBin(Geometry geom) {
+    if (geom instanceof Point && !geom.isEmpty()) {
+      // points are already valid lon/lat and are their own centroid, so index the coordinates directly
+      Point point = (Point) geom;
+      return z2.index(point.getX(), point.getY(), false);
+    }
     Point safeGeom = GeohashUtils.getInternationalDateLineSafeGeometry(geom).get().getCentroid();
-    Long index = z2.index(safeGeom.getX(), safeGeom.getY(), false);
-    return String.format("%0" + partitionNumBits + "d", index);
+    return z2.index(safeGeom.getX(), safeGeom.getY(), false);
   }
 
   @Override
-  public String apply(String key, GeoMesaMessage value) {
-    List<Object> attributes = value.asJava();
-    Geometry geom = (Geometry) attributes.get(defaultGeomIndex);
+  public Long apply(String key, GeoMesaMessage value) {
+    // read the geometry straight from the attributes, instead of copying them through asJava()
+    Geometry geom = (Geometry) value.attributes().apply(defaultGeomIndex);
+    // small bin counts are covered by the boxed Long cache, so this doesn't allocate for the quickstart settings
     return getZBin(geom);
   }
-}
\ No newline at end of file
+}
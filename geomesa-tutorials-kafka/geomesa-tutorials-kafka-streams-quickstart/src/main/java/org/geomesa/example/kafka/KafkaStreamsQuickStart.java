@@ -52,7 +52,8 @@ public class KafkaStreamsQuickStart extends GeoMesaQuickStart {
     private DataStore consumer = null;
     private GeoMesaStreamsBuilder builder = null;
 
-    private boolean wait = true;
+    // set in initializeFromOptions, which runs in the super constructor - an initializer here would overwrite it
+    private boolean wait;
 
     // uses t-dive streaming data
     public KafkaStreamsQuickStart(String[] args) throws ParseException {
@@ -62,15 +63,16 @@ public class KafkaStreamsQuickStart extends GeoMesaQuickStart {
     @Override
     public Options createOptions(Param[] parameters) {
         Options options = super.createOptions(parameters);
-        options.addOption(Option.builder().longOpt("automated").build());
+        options.addOption(Option.builder().longOpt("automated")
+                                .desc("Run without waiting for user input, e.g. from a script or benchmark harness")
+                                .build());
         return options;
     }
 
     @Override
-    public void initializeFromOptions(CommandLine command) {
+    public void initializeFromOptions(CommandLine command) throws ParseException {
         super.initializeFromOptions(command);
-        // TODO
-        wait = !Boolean.parseBoolean(command.getOptionValue("automated", "false"));
+        wait = !command.hasOption("automated");
     }
 
     @Override
@@ -101,6 +103,12 @@ public class KafkaStreamsQuickStart extends GeoMesaQuickStart {
         return file;
     }
 
+    @Override
+    public boolean usesDefaultWrites() {
+        // features are written through the list variant of writeFeatures
+        return false;
+    }
+
     @Override
     public void writeFeatures(DataStore datastore, SimpleFeatureType sft, List<SimpleFeature> features) throws IOException {
         // the live consumer must be created before the producer writes features
@@ -179,7 +187,7 @@ public class KafkaStreamsQuickStart extends GeoMesaQuickStart {
         KStream<String, GeoMesaMessage> input = builder.stream(typeName);
 
         // Re-key and repartition the data geospatially
-        KStream<String, GeoMesaMessage> geoPartioned = input
+        KStream<Long, GeoMesaMessage> geoPartioned = input
             // Filter empty and proximity messages
             .filter((k, v) -> !Objects.equals(getFID(v), "") && !getFID(v).startsWith(proximityId))
             // Re-key and re-partition the data spatially
@@ -190,7 +198,7 @@ public class KafkaStreamsQuickStart extends GeoMesaQuickStart {
             .join(geoPartioned,
                 (left, right) -> new Proximity(left, right, defaultGeomIndex),
                 JoinWindows.of(Duration.ofMinutes(2)),
-                StreamJoined.with(Serdes.String(), serde, serde))
+                StreamJoined.with(Serdes.Long(), serde, serde))
             .filter((k, v) -> v.areDifferent() && v.getDistance() < proximityDistanceMeters)
             .mapValues(Proximity::toGeoMesaMessage)
             .selectKey((k, v) -> proximityId + UUID.randomUUID());